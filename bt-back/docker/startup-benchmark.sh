@@ -0,0 +1,41 @@
+#!/bin/sh
+# Builds the standard and startup-optimized images and reports time to first successful request
+# (container start until /api/health answers 200) for each, as JSON lines plus a median summary.
+#
+#   docker/startup-benchmark.sh [runs]
+set -e
+
+RUNS=${1:-5}
+PORT=18080
+cd "$(dirname "$0")/.."
+
+docker build -q -t bt-back:standard -f Dockerfile . > /dev/null
+docker build -q -t bt-back:startup -f Dockerfile.startup . > /dev/null
+
+now_ms() {
+    echo $(($(date +%s%N) / 1000000))
+}
+
+for flavor in standard startup; do
+    results=""
+    i=1
+    while [ "$i" -le "$RUNS" ]; do
+        start=$(now_ms)
+        container=$(docker run -d -p "$PORT:8080" "bt-back:$flavor")
+        until [ "$(curl -s -o /dev/null -w '%{http_code}' "http://127.0.0.1:$PORT/api/health")" = "200" ]; do
+            if [ $(($(now_ms) - start)) -gt 120000 ]; then
+                echo "bt-back:$flavor did not answer within 120s" >&2
+                docker rm -f "$container" > /dev/null
+                exit 1
+            fi
+            sleep 0.02
+        done
+        elapsed=$(($(now_ms) - start))
+        docker rm -f "$container" > /dev/null
+        echo "{\"flavor\":\"$flavor\",\"run\":$i,\"timeToFirstRequestMs\":$elapsed}"
+        results="$results $elapsed"
+        i=$((i + 1))
+    done
+    median=$(echo "$results" | tr ' ' '\n' | grep -v '^$' | sort -n | awk '{v[NR]=$1} END {print v[int((NR + 1) / 2)]}')
+    echo "{\"flavor\":\"$flavor\",\"runs\":$RUNS,\"medianTimeToFirstRequestMs\":$median}"
+done
@@ -0,0 +1,31 @@
+#!/bin/sh
+# AOT cache training run for Dockerfile.startup. Starts the upstream stub, records the class loading
+# and linking of the backend while the load driver exercises every SpotifyController endpoint, then
+# shuts the backend down so the JVM writes app.aotconf on exit.
+set -e
+
+java -cp "training:application.jar:lib/*" com.spotify.app.perf.UpstreamStub --port=9090 --latency=none &
+STUB_PID=$!
+
+java -XX:AOTMode=record -XX:AOTConfiguration=app.aotconf -Dspring.aot.enabled=true \
+    -jar application.jar \
+    --server.port=8080 \
+    --spotify.client-id=training \
+    --spotify.client-secret=training \
+    --spotify.redirect-uri=http://127.0.0.1:8080/auth/spotify/callback \
+    --spotify.api-url=http://127.0.0.1:9090/v1 \
+    --spotify.token-url=http://127.0.0.1:9090/api/token &
+APP_PID=$!
+
+java -cp "training:application.jar:lib/*" com.spotify.app.perf.LoadDriver \
+    --target=http://127.0.0.1:8080 \
+    --mix=artist=20,album=20,artist-albums=15,top-tracks=10,related-artists=5,search=20,me=5,top-artists=5 \
+    --concurrency=4 \
+    --warmup=0 \
+    --duration=20s \
+    --output=/tmp/training.json
+
+kill -TERM "$APP_PID"
+wait "$APP_PID" || true
+kill "$STUB_PID"
+test -s app.aotconf
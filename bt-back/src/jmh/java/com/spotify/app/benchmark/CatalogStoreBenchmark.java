@@ -0,0 +1,71 @@
+package com.spotify.app.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotify.app.catalog.CatalogStore;
+import com.spotify.app.config.CatalogStoreConfig;
+import com.spotify.app.model.Album;
+import com.spotify.app.perf.CatalogPayloads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and writing albums in the off-heap {@link CatalogStore}, against decoding the same album
+ * from JSON, which is what a miss in an on-heap cache of encoded responses would cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CatalogStoreBenchmark {
+
+    private static final int ALBUMS = 20_000;
+
+    private ObjectMapper objectMapper;
+    private CatalogStore store;
+    private String[] ids;
+    private Album album;
+    private byte[] albumJson;
+
+    @Setup
+    public void setup() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        CatalogStoreConfig config = new CatalogStoreConfig();
+        config.setEnabled(true);
+        store = new CatalogStore(config);
+
+        CatalogPayloads payloads = new CatalogPayloads(42);
+        ids = new String[ALBUMS];
+        for (int i = 0; i < ALBUMS; i++) {
+            ids[i] = payloads.id();
+            Album stored = objectMapper.readValue(payloads.toJson(payloads.album(ids[i], 14)), Album.class);
+            store.put(stored, Duration.ofHours(1));
+        }
+        albumJson = payloads.toJson(payloads.album(ids[0], 14));
+        album = objectMapper.readValue(albumJson, Album.class);
+    }
+
+    @Benchmark
+    public Album get() {
+        return store.get(Album.class, ids[ThreadLocalRandom.current().nextInt(ALBUMS)]);
+    }
+
+    @Benchmark
+    public Album put() {
+        return store.put(album, Duration.ofHours(1));
+    }
+
+    @Benchmark
+    public Album decodeJson() throws IOException {
+        return objectMapper.readValue(albumJson, Album.class);
+    }
+}
@@ -0,0 +1,143 @@
+package com.spotify.app.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotify.app.cache.NegativeCache;
+import com.spotify.app.cache.ResponseCache;
+import com.spotify.app.catalog.CatalogStore;
+import com.spotify.app.config.BatchConfig;
+import com.spotify.app.config.CacheConfig;
+import com.spotify.app.config.CatalogStoreConfig;
+import com.spotify.app.config.ErrorLogConfig;
+import com.spotify.app.config.HedgeConfig;
+import com.spotify.app.config.NegativeCacheConfig;
+import com.spotify.app.config.PrefetchConfig;
+import com.spotify.app.config.RequestConfig;
+import com.spotify.app.config.SpotifyConfig;
+import com.spotify.app.config.UpstreamLimitConfig;
+import com.spotify.app.controller.ApiExceptionHandler;
+import com.spotify.app.controller.RequestExecutor;
+import com.spotify.app.controller.SpotifyController;
+import com.spotify.app.perf.UpstreamStub;
+import com.spotify.app.repository.TokenStore;
+import com.spotify.app.service.BatchService;
+import com.spotify.app.service.LogSampler;
+import com.spotify.app.service.Prefetcher;
+import com.spotify.app.service.RequestHedger;
+import com.spotify.app.service.SpotifyService;
+import com.spotify.app.service.TokenService;
+import com.spotify.app.service.UpstreamLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Full request path through {@link SpotifyController}: MVC dispatch, token lookup, upstream call
+ * against {@link UpstreamStub}, decoding and re-encoding the response. With {@code cache=true} the
+ * upstream call is replaced by a response cache hit after the first invocation, and the response is
+ * written from the entry's stored JSON bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ControllerDispatchBenchmark {
+
+    private static final String USER_ID = "benchmark-user";
+    private static final String ARTIST_ID = "0OdUWJ0sBjDrqHygGUXeCF";
+    private static final String ALBUM_ID = "4aawyAB9vmqN3uQ7FjRGTy";
+    private static final String BATCH = "{\"requests\": ["
+            + "{\"id\": \"artist\", \"path\": \"/api/artists/" + ARTIST_ID + "\"},"
+            + "{\"id\": \"album\", \"path\": \"/api/albums/" + ALBUM_ID + "\"},"
+            + "{\"id\": \"search\", \"path\": \"/api/search?q=midnight\"}]}";
+
+    @Param({"false", "true"})
+    public boolean cache;
+
+    private UpstreamStub upstream;
+    private MockMvc mockMvc;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        upstream = new UpstreamStub(UpstreamStub.Settings.defaults());
+
+        SpotifyConfig spotifyConfig = new SpotifyConfig();
+        spotifyConfig.setApiUrl(upstream.apiUrl());
+
+        TokenStore tokenStore = new InMemoryTokenStore();
+        tokenStore.save(InMemoryTokenStore.validToken(USER_ID));
+
+        CacheConfig cacheConfig = new CacheConfig();
+        cacheConfig.setEnabled(cache);
+        PrefetchConfig prefetchConfig = new PrefetchConfig();
+        prefetchConfig.setEnabled(false);
+        ResponseCache responseCache = new ResponseCache(cacheConfig);
+        TokenService tokenService = new TokenService(tokenStore, spotifyConfig, WebClient.builder(), event -> { },
+                responseCache);
+        UpstreamLimiter upstreamLimiter = new UpstreamLimiter(new UpstreamLimitConfig());
+        SpotifyService spotifyService = new SpotifyService(spotifyConfig, tokenService, WebClient.builder(),
+                cacheConfig, responseCache, prefetchConfig, new Prefetcher(prefetchConfig),
+                new RequestHedger(new HedgeConfig(), upstreamLimiter), new CatalogStore(new CatalogStoreConfig()),
+                new NegativeCache(new NegativeCacheConfig()), upstreamLimiter);
+        LogSampler logSampler = new LogSampler(new ErrorLogConfig());
+        SpotifyController controller = new SpotifyController(spotifyService, new RequestExecutor(new RequestConfig()),
+                new BatchService(spotifyService, new BatchConfig(), logSampler), responseCache, new ObjectMapper());
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new ApiExceptionHandler(logSampler))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        upstream.close();
+    }
+
+    @Benchmark
+    public byte[] getArtist() throws Exception {
+        return dispatch(get("/api/artists/{id}", ARTIST_ID).param("userId", USER_ID));
+    }
+
+    @Benchmark
+    public byte[] getAlbum() throws Exception {
+        return dispatch(get("/api/albums/{id}", ALBUM_ID).param("userId", USER_ID));
+    }
+
+    @Benchmark
+    public byte[] search() throws Exception {
+        return dispatch(get("/api/search").param("q", "midnight").param("userId", USER_ID));
+    }
+
+    /**
+     * The three requests above as one {@code /api/batch} call.
+     */
+    @Benchmark
+    public byte[] batch() throws Exception {
+        return dispatch(post("/api/batch").param("userId", USER_ID)
+                .contentType(MediaType.APPLICATION_JSON).content(BATCH));
+    }
+
+    /**
+     * API endpoints answer asynchronously; the second dispatch waits for the worker's result.
+     */
+    private byte[] dispatch(RequestBuilder request) throws Exception {
+        MvcResult started = mockMvc.perform(request).andReturn();
+        return mockMvc.perform(asyncDispatch(started)).andReturn().getResponse().getContentAsByteArray();
+    }
+}
@@ -0,0 +1,46 @@
+package com.spotify.app.benchmark;
+
+import com.spotify.app.model.SpotifyToken;
+import com.spotify.app.repository.TokenStore;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Map backed {@link TokenStore} so benchmarks can isolate service overhead from JPA/H2.
+ */
+final class InMemoryTokenStore implements TokenStore {
+
+    private final Map<String, SpotifyToken> tokens = new ConcurrentHashMap<>();
+
+    static SpotifyToken validToken(String userId) {
+        SpotifyToken token = new SpotifyToken();
+        token.setUserId(userId);
+        token.setAccessToken("benchmark-access-token-" + userId);
+        token.setRefreshToken("benchmark-refresh-token-" + userId);
+        token.setTokenType("Bearer");
+        token.setExpiresIn(3600);
+        token.setScope("user-read-private user-read-email user-top-read");
+        token.setCreatedAt(LocalDateTime.now());
+        token.setExpiresAt(LocalDateTime.now().plusDays(1));
+        return token;
+    }
+
+    @Override
+    public Optional<SpotifyToken> find(String userId) {
+        return Optional.ofNullable(tokens.get(userId));
+    }
+
+    @Override
+    public SpotifyToken save(SpotifyToken token) {
+        tokens.put(token.getUserId(), token);
+        return token;
+    }
+
+    @Override
+    public void delete(String userId) {
+        tokens.remove(userId);
+    }
+}
@@ -0,0 +1,108 @@
+package com.spotify.app.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotify.app.model.Album;
+import com.spotify.app.model.Artist;
+import com.spotify.app.model.Track;
+import com.spotify.app.perf.CatalogPayloads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson decoding cost of upstream payloads, typed versus the raw {@code Map} form
+ * that {@code SpotifyService} currently uses for most endpoints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonDeserializationBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private byte[] artistJson;
+    private byte[] albumJson;
+    private byte[] trackJson;
+    private byte[] searchJson;
+
+    @Setup
+    public void setup() {
+        // Same defaults Spring Boot applies to the WebClient codecs (unknown properties ignored)
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        CatalogPayloads payloads = new CatalogPayloads(42);
+        artistJson = payloads.toJson(payloads.artist(payloads.id()));
+        albumJson = payloads.toJson(payloads.album(payloads.id(), 14));
+        trackJson = payloads.toJson(payloads.track(payloads.id(), true));
+        searchJson = payloads.toJson(payloads.search("midnight", 10, 0));
+    }
+
+    @Benchmark
+    public Artist artistTyped() throws IOException {
+        return objectMapper.readValue(artistJson, Artist.class);
+    }
+
+    @Benchmark
+    public Map<?, ?> artistAsMap() throws IOException {
+        return objectMapper.readValue(artistJson, Map.class);
+    }
+
+    @Benchmark
+    public Album albumTyped() throws IOException {
+        return objectMapper.readValue(albumJson, Album.class);
+    }
+
+    @Benchmark
+    public Map<?, ?> albumAsMap() throws IOException {
+        return objectMapper.readValue(albumJson, Map.class);
+    }
+
+    @Benchmark
+    public Track trackTyped() throws IOException {
+        return objectMapper.readValue(trackJson, Track.class);
+    }
+
+    @Benchmark
+    public Map<?, ?> trackAsMap() throws IOException {
+        return objectMapper.readValue(trackJson, Map.class);
+    }
+
+    @Benchmark
+    public SearchResult searchTyped() throws IOException {
+        return objectMapper.readValue(searchJson, SearchResult.class);
+    }
+
+    @Benchmark
+    public Map<?, ?> searchAsMap() throws IOException {
+        return objectMapper.readValue(searchJson, Map.class);
+    }
+
+    /**
+     * There is no search model in the application yet; this mirrors what one would look like.
+     */
+    public static class SearchResult {
+        public Page<Artist> artists;
+        public Page<Album> albums;
+        public Page<Track> tracks;
+    }
+
+    public static class Page<T> {
+        public String href;
+        public List<T> items;
+        public Integer limit;
+        public String next;
+        public Integer offset;
+        public String previous;
+        public Integer total;
+    }
+}
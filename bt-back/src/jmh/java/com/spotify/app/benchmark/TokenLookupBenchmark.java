@@ -0,0 +1,84 @@
+package com.spotify.app.benchmark;
+
+import com.spotify.app.SpotifyApiApplication;
+import com.spotify.app.cache.ResponseCache;
+import com.spotify.app.config.CacheConfig;
+import com.spotify.app.config.SpotifyConfig;
+import com.spotify.app.model.SpotifyToken;
+import com.spotify.app.repository.TokenStore;
+import com.spotify.app.service.TokenService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link TokenService#getValidToken}, which every API request pays before going upstream.
+ * {@code jpa} and {@code write-behind} run against the real Spring context and H2 with the matching
+ * token store, {@code in-memory} isolates the service itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenLookupBenchmark {
+
+    private static final String USER_ID = "benchmark-user";
+
+    @Param({"in-memory", "jpa", "write-behind"})
+    public String store;
+
+    private ConfigurableApplicationContext context;
+    private TokenService tokenService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        TokenStore tokenStore;
+        if (!"in-memory".equals(store)) {
+            context = new SpringApplicationBuilder(SpotifyApiApplication.class)
+                    .properties(
+                            "server.port=0",
+                            "spring.main.banner-mode=off",
+                            "logging.level.root=WARN",
+                            "spring.datasource.url=jdbc:h2:mem:token-benchmark",
+                            "token.write-behind.enabled=" + "write-behind".equals(store),
+                            "token.write-behind.journal=build/tmp/token-benchmark-journal.jsonl")
+                    .run();
+            tokenService = context.getBean(TokenService.class);
+            tokenStore = context.getBean(TokenStore.class);
+        } else {
+            tokenStore = new InMemoryTokenStore();
+            tokenService = new TokenService(tokenStore, new SpotifyConfig(), WebClient.builder(), event -> { },
+                    new ResponseCache(new CacheConfig()));
+        }
+        tokenStore.save(InMemoryTokenStore.validToken(USER_ID));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public Optional<SpotifyToken> validToken() {
+        return tokenService.getValidToken(USER_ID);
+    }
+
+    @Benchmark
+    public Optional<SpotifyToken> unknownUser() {
+        return tokenService.getValidToken("unknown-user");
+    }
+}
@@ -0,0 +1,76 @@
+package com.spotify.app.benchmark;
+
+import com.spotify.app.perf.UpstreamStub;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code SpotifyService} builds a new {@link WebClient} for every call. This compares that against
+ * a single shared client that sets the authorization header per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WebClientBenchmark {
+
+    private static final String ACCESS_TOKEN = "benchmark-access-token";
+    private static final String ARTIST_ID = "0OdUWJ0sBjDrqHygGUXeCF";
+
+    private UpstreamStub upstream;
+    private WebClient.Builder webClientBuilder;
+    private WebClient sharedClient;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        upstream = new UpstreamStub(UpstreamStub.Settings.defaults());
+        webClientBuilder = WebClient.builder();
+        sharedClient = WebClient.builder().baseUrl(upstream.apiUrl()).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        upstream.close();
+    }
+
+    @Benchmark
+    public WebClient buildClient() {
+        return webClientBuilder
+                .baseUrl(upstream.apiUrl())
+                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + ACCESS_TOKEN)
+                .build();
+    }
+
+    @Benchmark
+    public Map<?, ?> callWithNewClient() {
+        return buildClient()
+                .get()
+                .uri("/artists/{id}", ARTIST_ID)
+                .retrieve()
+                .bodyToMono(Map.class)
+                .block();
+    }
+
+    @Benchmark
+    public Map<?, ?> callWithSharedClient() {
+        return sharedClient
+                .get()
+                .uri("/artists/{id}", ARTIST_ID)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + ACCESS_TOKEN)
+                .retrieve()
+                .bodyToMono(Map.class)
+                .block();
+    }
+}
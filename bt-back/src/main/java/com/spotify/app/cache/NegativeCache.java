@@ -0,0 +1,86 @@
+package com.spotify.app.cache;
+
+import com.spotify.app.config.NegativeCacheConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers ids Spotify rejected as unknown (404, or 400 for an id it cannot parse), so bots and
+ * stale links asking for them again are answered without a token lookup or upstream call. Ids are
+ * kept in two generations: new ones go into the current set, and every half {@code ttl} the older
+ * set is dropped whole, so an id is remembered for between half and all of {@code ttl} without
+ * per-id timestamps or sweeps. A generation that reaches {@code max-ids} rotates early, which
+ * bounds the cache at twice that many ids.
+ */
+@Component
+public class NegativeCache {
+
+    private final NegativeCacheConfig config;
+    private final LongSupplier nanoClock;
+
+    private volatile Set<String> current = ConcurrentHashMap.newKeySet();
+    private volatile Set<String> previous = ConcurrentHashMap.newKeySet();
+    private volatile long rotatedAt;
+
+    @Autowired
+    public NegativeCache(NegativeCacheConfig config) {
+        this(config, System::nanoTime);
+    }
+
+    NegativeCache(NegativeCacheConfig config, LongSupplier nanoClock) {
+        this.config = config;
+        this.nanoClock = nanoClock;
+        this.rotatedAt = nanoClock.getAsLong();
+    }
+
+    public boolean isKnownMissing(String type, String id) {
+        if (!config.isEnabled()) {
+            return false;
+        }
+        rotateIfDue(false);
+        String key = type + ":" + id;
+        return current.contains(key) || previous.contains(key);
+    }
+
+    public void recordMissing(String type, String id) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        rotateIfDue(current.size() >= config.getMaxIds());
+        current.add(type + ":" + id);
+    }
+
+    public int size() {
+        return current.size() + previous.size();
+    }
+
+    private void rotateIfDue(boolean full) {
+        long now = nanoClock.getAsLong();
+        long halfTtl = config.getTtl().toNanos() / 2;
+        if (!full && now - rotatedAt < halfTtl) {
+            return;
+        }
+        synchronized (this) {
+            long elapsed = now - rotatedAt;
+            if (elapsed >= 2 * halfTtl) {
+                // Nothing looked for a whole ttl; both generations are stale
+                previous = ConcurrentHashMap.newKeySet();
+                current = ConcurrentHashMap.newKeySet();
+                rotatedAt = now;
+            } else if (elapsed >= halfTtl) {
+                // On the half-ttl grid, so a late rotation does not stretch the older generation's life
+                previous = current;
+                current = ConcurrentHashMap.newKeySet();
+                rotatedAt += halfTtl;
+            } else if (current.size() >= config.getMaxIds()) {
+                previous = current;
+                current = ConcurrentHashMap.newKeySet();
+                rotatedAt = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.spotify.app.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotify.app.config.CacheConfig;
+import com.spotify.app.service.RequestCancellation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * TTL cache for decoded upstream responses. Concurrent misses on the same key share one load, so a
+ * user request arriving while the same resource is being prefetched waits for that fetch instead of
+ * issuing a second upstream call. Each entry also keeps the response's encoded JSON, plain and
+ * gzipped, built on first use and dropped with the entry.
+ */
+@Component
+@RequiredArgsConstructor
+public class ResponseCache {
+
+    private final CacheConfig cacheConfig;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Entry[]> CAPTURED = new ThreadLocal<>();
+
+    public <T> T get(String key, Duration ttl, Supplier<T> loader) {
+        return load(key, ttl, loader, true);
+    }
+
+    /**
+     * Coalesces concurrent loads of {@code key} like {@link #get}, but keeps nothing afterwards.
+     * For values the caller stores elsewhere.
+     */
+    public <T> T share(String key, Supplier<T> loader) {
+        return load(key, null, loader, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T load(String key, Duration ttl, Supplier<T> loader, boolean retain) {
+        if (!cacheConfig.isEnabled()) {
+            return loader.get();
+        }
+        while (true) {
+            Entry entry = retain ? entries.get(key) : null;
+            if (entry != null && !entry.isExpired()) {
+                captured(entry);
+                return (T) entry.value;
+            }
+
+            CompletableFuture<Object> load = new CompletableFuture<>();
+            CompletableFuture<Object> inFlight = loading.putIfAbsent(key, load);
+            if (inFlight != null) {
+                try {
+                    // A copy, so cancelling this request never cancels a load other requests share
+                    Object value = RequestCancellation.await(inFlight.copy());
+                    captured(entries.get(key));
+                    return (T) value;
+                } catch (CancellationException e) {
+                    if (RequestCancellation.isCurrentCancelled() || Thread.currentThread().isInterrupted()) {
+                        throw e;
+                    }
+                    // The request that was loading it went away; load it ourselves
+                    continue;
+                }
+            }
+            try {
+                T value = loader.get();
+                // Not if the key was invalidated while loading
+                if (value != null && retain && loading.get(key) == load) {
+                    captured(put(key, value, ttl));
+                }
+                load.complete(value);
+                return value;
+            } catch (RuntimeException e) {
+                if (e instanceof CancellationException) {
+                    load.cancel(false);
+                } else {
+                    load.completeExceptionally(e);
+                }
+                throw e;
+            } finally {
+                loading.remove(key, load);
+            }
+        }
+    }
+
+    /**
+     * Runs {@code work} and returns its result together with the cache entry of the first lookup
+     * it made on this thread, if that entry holds the returned value. Lets the web layer write an
+     * entry's encoded bytes without knowing its key.
+     */
+    public <T> Captured<T> capture(Supplier<T> work) {
+        Entry[] outer = CAPTURED.get();
+        Entry[] slot = new Entry[1];
+        CAPTURED.set(slot);
+        try {
+            T value = work.get();
+            Entry entry = slot[0];
+            return new Captured<>(value, entry != null && entry.value == value ? entry : null);
+        } finally {
+            if (outer != null) {
+                CAPTURED.set(outer);
+            } else {
+                CAPTURED.remove();
+            }
+        }
+    }
+
+    /**
+     * True if the key is cached and fresh, or already being loaded.
+     */
+    public boolean contains(String key) {
+        Entry entry = entries.get(key);
+        return (entry != null && !entry.isExpired()) || loading.containsKey(key);
+    }
+
+    /**
+     * Drops the entries whose key matches. Matching loads in flight are detached: their result is
+     * not stored, and requests arriving afterwards load afresh instead of joining them.
+     */
+    public void invalidate(Predicate<String> keys) {
+        entries.keySet().removeIf(keys);
+        loading.keySet().removeIf(keys);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private Entry put(String key, Object value, Duration ttl) {
+        if (entries.size() >= cacheConfig.getMaxEntries()) {
+            evict();
+        }
+        Entry entry = new Entry(value, System.nanoTime() + ttl.toNanos());
+        entries.put(key, entry);
+        return entry;
+    }
+
+    private static void captured(Entry entry) {
+        Entry[] slot = CAPTURED.get();
+        if (slot != null && slot[0] == null) {
+            slot[0] = entry;
+        }
+    }
+
+    /**
+     * Drops expired entries, then arbitrary ones until a tenth of the capacity is free. Cheap and
+     * good enough for a bounded cache of short-lived entries.
+     */
+    private void evict() {
+        entries.values().removeIf(Entry::isExpired);
+        int target = cacheConfig.getMaxEntries() - Math.max(1, cacheConfig.getMaxEntries() / 10);
+        Iterator<String> keys = entries.keySet().iterator();
+        while (entries.size() > target && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    public record Captured<T>(T value, Entry entry) {
+    }
+
+    public static final class Entry {
+        final Object value;
+        final long expiresAt;
+
+        // Built lazily; a race only means encoding twice
+        private volatile byte[] json;
+        private volatile byte[] gzip;
+
+        Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - expiresAt > 0;
+        }
+
+        public byte[] json(ObjectMapper objectMapper) {
+            byte[] encoded = json;
+            if (encoded == null) {
+                try {
+                    encoded = objectMapper.writeValueAsBytes(value);
+                } catch (JsonProcessingException e) {
+                    throw new UncheckedIOException(e);
+                }
+                json = encoded;
+            }
+            return encoded;
+        }
+
+        public byte[] gzip(ObjectMapper objectMapper) {
+            byte[] encoded = gzip;
+            if (encoded == null) {
+                byte[] plain = json(objectMapper);
+                ByteArrayOutputStream out = new ByteArrayOutputStream(plain.length / 4 + 64);
+                try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+                    gzipOut.write(plain);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                encoded = out.toByteArray();
+                gzip = encoded;
+            }
+            return encoded;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.spotify.app.capture;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records every {@code /api} and {@code /auth} request with its timing and status. Batch bodies
+ * are kept too, since the sub-requests are the whole request; no other body is.
+ */
+@Component
+@ConditionalOnProperty(prefix = "capture", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class CaptureFilter extends OncePerRequestFilter {
+
+    private static final String BATCH_PATH = "/api/batch";
+    private static final int MAX_BATCH_BODY_BYTES = 64 * 1024;
+
+    private final TrafficRecorder trafficRecorder;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return !path.startsWith("/api/") && !path.startsWith("/auth/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        HttpServletRequest recorded = request.getMethod().equals("POST") && request.getRequestURI().equals(BATCH_PATH)
+                ? new ContentCachingRequestWrapper(request, MAX_BATCH_BODY_BYTES)
+                : request;
+        try {
+            filterChain.doFilter(recorded, response);
+        } finally {
+            if (recorded.isAsyncStarted()) {
+                // The status is only known once the async request completes
+                recorded.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(recorded, response, start);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(recorded, response, start);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, long start) {
+        Map<String, List<String>> params = new LinkedHashMap<>();
+        request.getParameterMap().forEach((key, values) -> params.put(key, Arrays.asList(values)));
+        Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String body = request instanceof ContentCachingRequestWrapper cached
+                ? new String(cached.getContentAsByteArray(), StandardCharsets.UTF_8)
+                : null;
+
+        trafficRecorder.recordRequest(request.getMethod(), request.getRequestURI(), params,
+                route != null ? route.toString() : request.getRequestURI(), response.getStatus(), start, body);
+    }
+}
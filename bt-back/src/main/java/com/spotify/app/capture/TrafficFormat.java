@@ -0,0 +1,65 @@
+package com.spotify.app.capture;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Shared by the capture side and the replay tool so both build identical request keys.
+ */
+public final class TrafficFormat {
+
+    /**
+     * Parameters that identify a person or carry credentials; their values are hashed on capture.
+     * Spotify echoes a search's {@code q} back as {@code query} in its paging links.
+     */
+    public static final Set<String> SENSITIVE_PARAMS = Set.of("userId", "q", "query", "code", "state", "error");
+
+    private TrafficFormat() {
+    }
+
+    public static Map<String, List<String>> parseQuery(String rawQuery) {
+        Map<String, List<String>> params = new LinkedHashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+        }
+        return params;
+    }
+
+    /**
+     * Query string with keys sorted and sensitive values passed through {@code anonymizer},
+     * so the same logical request always produces the same string.
+     */
+    public static String canonicalQuery(Map<String, ? extends Collection<String>> params, UnaryOperator<String> anonymizer) {
+        StringBuilder query = new StringBuilder();
+        new TreeMap<>(params).forEach((key, values) -> {
+            for (String value : values) {
+                if (query.length() > 0) {
+                    query.append('&');
+                }
+                String recorded = SENSITIVE_PARAMS.contains(key) ? anonymizer.apply(value) : value;
+                query.append(URLEncoder.encode(key, StandardCharsets.UTF_8))
+                        .append('=')
+                        .append(URLEncoder.encode(recorded, StandardCharsets.UTF_8));
+            }
+        });
+        return query.toString();
+    }
+}
@@ -0,0 +1,271 @@
+package com.spotify.app.capture;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.spotify.app.config.CaptureConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes anonymized API requests and the upstream responses behind them to a gzipped JSON lines
+ * file for later replay. Recording only enqueues; a single background thread does the I/O, and
+ * events are dropped when it falls behind so capture never adds latency to real requests.
+ */
+@Component
+@ConditionalOnProperty(prefix = "capture", name = "enabled", havingValue = "true")
+@Slf4j
+public class TrafficRecorder {
+
+    private static final Map<String, Object> STOP = Map.of();
+    private static final List<String> PROFILE_FIELDS =
+            List.of("id", "display_name", "email", "uri", "href", "external_urls", "images", "birthdate");
+
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<Map<String, Object>> queue;
+    private final Mac mac;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Path file;
+    private final Thread writer;
+
+    public TrafficRecorder(CaptureConfig captureConfig, ObjectMapper objectMapper) throws IOException, GeneralSecurityException {
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(captureConfig.getQueueCapacity());
+
+        String salt = captureConfig.getSalt() != null ? captureConfig.getSalt() : UUID.randomUUID().toString();
+        this.mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(salt.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+
+        Path directory = Path.of(captureConfig.getDirectory());
+        Files.createDirectories(directory);
+        this.file = directory.resolve("traffic-" + System.currentTimeMillis() + ".jsonl.gz");
+        BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(file)), StandardCharsets.UTF_8));
+
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("type", "header");
+        header.put("version", 1);
+        header.put("startedAt", System.currentTimeMillis());
+        queue.add(header);
+
+        this.writer = new Thread(() -> drain(out), "traffic-capture-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Capturing traffic to {}", file.toAbsolutePath());
+    }
+
+    /**
+     * Stable, non-reversible token for a sensitive value. The same value maps to the same token
+     * within a capture, which keeps repeated queries and per-user sequences intact.
+     */
+    public String anonymize(String value) {
+        byte[] digest;
+        synchronized (mac) {
+            digest = mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest, 0, 8);
+    }
+
+    /**
+     * {@code body} is a batch request's body, or null; the writer thread hashes the sensitive
+     * parameters in each sub-request's path like those of a plain request.
+     */
+    public void recordRequest(String method, String path, Map<String, ? extends Collection<String>> params,
+                              String route, int status, long startNanos, String body) {
+        Map<String, Object> event = event("request", startNanos);
+        event.put("method", method);
+        event.put("path", path);
+        event.put("query", TrafficFormat.canonicalQuery(params, this::anonymize));
+        event.put("route", route);
+        event.put("status", status);
+        if (body != null) {
+            event.put("body", body);
+        }
+        offer(event);
+    }
+
+    public void recordUpstream(String method, String path, String rawQuery, int status, String body, long startNanos) {
+        Map<String, Object> event = event("upstream", startNanos);
+        event.put("method", method);
+        event.put("path", path);
+        event.put("query", TrafficFormat.canonicalQuery(TrafficFormat.parseQuery(rawQuery), this::anonymize));
+        event.put("status", status);
+        // Anonymized by the writer thread, off the response path
+        event.put("body", body);
+        offer(event);
+    }
+
+    /**
+     * Token exchanges are recorded for timing only; the replay side issues its own tokens.
+     */
+    public void recordToken(int status, long startNanos) {
+        Map<String, Object> event = event("token", startNanos);
+        event.put("status", status);
+        offer(event);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        queue.put(STOP);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (dropped.get() > 0) {
+            log.warn("Traffic capture dropped {} events because the writer fell behind", dropped.get());
+        }
+        log.info("Traffic capture written to {}", file.toAbsolutePath());
+    }
+
+    private Map<String, Object> event(String type, long startNanos) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("type", type);
+        event.put("t", TimeUnit.NANOSECONDS.toMicros(startNanos - this.startNanos));
+        event.put("us", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+        return event;
+    }
+
+    private void offer(Map<String, Object> event) {
+        if (!queue.offer(event)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private String anonymizeBody(String path, String body) {
+        if (path.equals("/me")) {
+            return anonymizeProfile(body);
+        }
+        // Paging links, like a search's href, next and previous, repeat the query in their own query string
+        if (body.indexOf('?') < 0) {
+            return body;
+        }
+        try {
+            JsonNode root = objectMapper.readTree(body);
+            return anonymizeLinks(root) ? objectMapper.writeValueAsString(root) : body;
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private boolean anonymizeLinks(JsonNode node) {
+        boolean changed = false;
+        if (node instanceof ObjectNode object) {
+            for (Map.Entry<String, JsonNode> field : object.properties()) {
+                if (field.getValue().isTextual()) {
+                    String link = anonymizeLink(field.getValue().textValue());
+                    if (link != null) {
+                        field.setValue(TextNode.valueOf(link));
+                        changed = true;
+                    }
+                } else {
+                    changed |= anonymizeLinks(field.getValue());
+                }
+            }
+        } else if (node instanceof ArrayNode array) {
+            for (JsonNode element : array) {
+                changed |= anonymizeLinks(element);
+            }
+        }
+        return changed;
+    }
+
+    // The link with sensitive query values hashed, or null if it has none
+    private String anonymizeLink(String value) {
+        int start = value.indexOf('?');
+        if (start < 0 || !value.startsWith("http")) {
+            return null;
+        }
+        Map<String, List<String>> params = TrafficFormat.parseQuery(value.substring(start + 1));
+        if (params.keySet().stream().noneMatch(TrafficFormat.SENSITIVE_PARAMS::contains)) {
+            return null;
+        }
+        return value.substring(0, start + 1) + TrafficFormat.canonicalQuery(params, this::anonymize);
+    }
+
+    private String anonymizeBatch(String body) {
+        if (body.isEmpty()) {
+            return body;
+        }
+        try {
+            JsonNode batch = objectMapper.readTree(body);
+            for (JsonNode item : batch.path("requests")) {
+                if (item instanceof ObjectNode request && request.path("path").isTextual()) {
+                    String path = request.get("path").textValue();
+                    int start = path.indexOf('?');
+                    if (start >= 0) {
+                        String query = TrafficFormat.canonicalQuery(
+                                TrafficFormat.parseQuery(path.substring(start + 1)), this::anonymize);
+                        request.put("path", path.substring(0, start + 1) + query);
+                    }
+                }
+            }
+            return objectMapper.writeValueAsString(batch);
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private String anonymizeProfile(String body) {
+        try {
+            Map<String, Object> profile = objectMapper.readValue(body, new TypeReference<Map<String, Object>>() {});
+            for (String field : PROFILE_FIELDS) {
+                if (profile.containsKey(field)) {
+                    profile.put(field, field.equals("id") ? anonymize(String.valueOf(profile.get(field))) : null);
+                }
+            }
+            return objectMapper.writeValueAsString(profile);
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private void drain(BufferedWriter out) {
+        try (out) {
+            while (true) {
+                Map<String, Object> event = queue.poll(1, TimeUnit.SECONDS);
+                if (event == STOP) {
+                    return;
+                }
+                if (event == null) {
+                    out.flush();
+                    continue;
+                }
+                if ("upstream".equals(event.get("type"))) {
+                    event.put("body", anonymizeBody((String) event.get("path"), (String) event.get("body")));
+                } else if (event.get("body") instanceof String batch) {
+                    event.put("body", anonymizeBatch(batch));
+                }
+                out.write(objectMapper.writeValueAsString(event));
+                out.newLine();
+            }
+        } catch (IOException e) {
+            log.error("Traffic capture stopped, failed writing {}", file, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
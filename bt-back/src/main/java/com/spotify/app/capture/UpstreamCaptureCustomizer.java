@@ -0,0 +1,60 @@
+package com.spotify.app.capture;
+
+import com.spotify.app.config.SpotifyConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+/**
+ * Adds a filter to every Boot-provided {@link WebClient.Builder} that records upstream responses.
+ * Bodies are buffered once and handed back to the caller unchanged.
+ */
+@Component
+@ConditionalOnProperty(prefix = "capture", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class UpstreamCaptureCustomizer implements WebClientCustomizer {
+
+    private final TrafficRecorder trafficRecorder;
+    private final SpotifyConfig spotifyConfig;
+
+    @Override
+    public void customize(WebClient.Builder webClientBuilder) {
+        webClientBuilder.filter(this::capture);
+    }
+
+    private Mono<ClientResponse> capture(ClientRequest request, ExchangeFunction next) {
+        long start = System.nanoTime();
+        URI url = request.url();
+
+        if (spotifyConfig.getTokenUrl() != null && url.toString().startsWith(spotifyConfig.getTokenUrl())) {
+            return next.exchange(request)
+                    .doOnNext(response -> trafficRecorder.recordToken(response.statusCode().value(), start));
+        }
+
+        String path = relativePath(url);
+        return next.exchange(request).flatMap(response -> response.bodyToMono(String.class)
+                .defaultIfEmpty("")
+                .map(body -> {
+                    trafficRecorder.recordUpstream(request.method().name(), path, url.getRawQuery(),
+                            response.statusCode().value(), body, start);
+                    return response.mutate().body(body).build();
+                }));
+    }
+
+    /**
+     * Path relative to {@code spotify.api-url}, so a capture can be replayed against any base URL.
+     */
+    private String relativePath(URI url) {
+        String basePath = spotifyConfig.getApiUrl() != null ? URI.create(spotifyConfig.getApiUrl()).getPath() : "";
+        String path = url.getPath();
+        return !basePath.isEmpty() && path.startsWith(basePath) ? path.substring(basePath.length()) : path;
+    }
+}
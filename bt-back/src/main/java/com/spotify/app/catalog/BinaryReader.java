@@ -0,0 +1,71 @@
+package com.spotify.app.catalog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a record written by {@link BinaryWriter} with absolute gets, so many readers can share
+ * one slab without touching its position.
+ */
+final class BinaryReader {
+
+    private final ByteBuffer slab;
+    private int position;
+
+    BinaryReader(ByteBuffer slab, int position) {
+        this.slab = slab;
+        this.position = position;
+    }
+
+    int readByte() {
+        return slab.get(position++) & 0xFF;
+    }
+
+    long readLong() {
+        long value = slab.getLong(position);
+        position += 8;
+        return value;
+    }
+
+    long readVarLong() {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    int readVarInt() {
+        return (int) readVarLong();
+    }
+
+    Integer readNullableInt() {
+        long encoded = readVarLong();
+        if (encoded == 0) {
+            return null;
+        }
+        long zigzag = encoded - 1;
+        return (int) ((zigzag >>> 1) ^ -(zigzag & 1));
+    }
+
+    Boolean readNullableBoolean() {
+        int value = readByte();
+        return value == 0 ? null : value == 2;
+    }
+
+    String readString() {
+        int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        slab.get(position, bytes);
+        position += bytes.length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
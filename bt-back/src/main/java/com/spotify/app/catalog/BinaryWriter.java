@@ -0,0 +1,78 @@
+package com.spotify.app.catalog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable scratch buffer records are encoded into before they are copied into a slab. Integers
+ * are unsigned LEB128 varints, nullable values reserve 0 for null.
+ */
+final class BinaryWriter {
+
+    private byte[] buffer = new byte[4096];
+    private int position;
+
+    void reset() {
+        position = 0;
+    }
+
+    int length() {
+        return position;
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    void writeByte(int value) {
+        ensure(1);
+        buffer[position++] = (byte) value;
+    }
+
+    void writeLong(long value) {
+        ensure(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+    }
+
+    void writeVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    void writeVarInt(int value) {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    void writeNullableInt(Integer value) {
+        // Zigzag so small negative numbers stay short; 0 is null
+        writeVarLong(value == null ? 0 : ((((long) value) << 1) ^ (((long) value) >> 63)) + 1);
+    }
+
+    void writeNullableBoolean(Boolean value) {
+        writeByte(value == null ? 0 : value ? 2 : 1);
+    }
+
+    void writeString(String value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length + 1);
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void ensure(int extra) {
+        if (position + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+        }
+    }
+}
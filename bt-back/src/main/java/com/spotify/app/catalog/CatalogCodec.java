@@ -0,0 +1,376 @@
+package com.spotify.app.catalog;
+
+import com.spotify.app.model.Album;
+import com.spotify.app.model.Artist;
+import com.spotify.app.model.MarketSet;
+import com.spotify.app.model.Track;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary layout of catalog entities. Repeated strings (types, genres, map keys) are interned in a
+ * {@link StringTable}; {@code uri}, {@code href} and external URLs are stored as an
+ * interned prefix in front of the entity id, which is how Spotify builds them. Markets are the
+ * {@link MarketSet} bitset.
+ */
+final class CatalogCodec {
+
+    private static final int NULL = 0;
+    private static final int INLINE = 1;
+    private static final int INTERNED = 2;
+
+    private final StringTable strings;
+
+    CatalogCodec(StringTable strings) {
+        this.strings = strings;
+    }
+
+    void writeArtist(BinaryWriter out, Artist artist) {
+        String id = artist.getId();
+        out.writeString(id);
+        out.writeString(artist.getName());
+        writeInterned(out, artist.getType());
+        writeLinked(out, artist.getUri(), id);
+        writeLinked(out, artist.getHref(), id);
+        writeUrls(out, artist.getExternalUrls(), id);
+        writeInternedList(out, artist.getGenres());
+        out.writeNullableInt(artist.getPopularity());
+        Artist.Followers followers = artist.getFollowers();
+        if (followers == null) {
+            out.writeByte(0);
+        } else {
+            out.writeByte(1);
+            out.writeString(followers.getHref());
+            out.writeNullableInt(followers.getTotal());
+        }
+        writeImages(out, artist.getImages());
+    }
+
+    Artist readArtist(BinaryReader in) {
+        Artist artist = new Artist();
+        String id = in.readString();
+        artist.setId(id);
+        artist.setName(in.readString());
+        artist.setType(readInterned(in));
+        artist.setUri(readLinked(in, id));
+        artist.setHref(readLinked(in, id));
+        artist.setExternalUrls(readUrls(in, id));
+        artist.setGenres(readInternedList(in));
+        artist.setPopularity(in.readNullableInt());
+        if (in.readByte() != 0) {
+            Artist.Followers followers = new Artist.Followers();
+            followers.setHref(in.readString());
+            followers.setTotal(in.readNullableInt());
+            artist.setFollowers(followers);
+        }
+        artist.setImages(readImages(in));
+        return artist;
+    }
+
+    void writeAlbum(BinaryWriter out, Album album) {
+        String id = album.getId();
+        out.writeString(id);
+        out.writeString(album.getName());
+        writeInterned(out, album.getType());
+        writeLinked(out, album.getUri(), id);
+        writeLinked(out, album.getHref(), id);
+        writeUrls(out, album.getExternalUrls(), id);
+        writeInterned(out, album.getAlbumType());
+        out.writeNullableInt(album.getTotalTracks());
+        // Release dates and labels are close to unique per album and would fill the table
+        out.writeString(album.getReleaseDate());
+        writeInterned(out, album.getReleaseDatePrecision());
+        writeInternedList(out, album.getGenres());
+        out.writeString(album.getLabel());
+        out.writeNullableInt(album.getPopularity());
+        writeArtists(out, album.getArtists());
+        writeImages(out, album.getImages());
+        writeMarkets(out, album.getMarkets());
+        Album.Tracks tracks = album.getTracks();
+        if (tracks == null) {
+            out.writeByte(0);
+        } else {
+            out.writeByte(1);
+            out.writeString(tracks.getHref());
+            out.writeNullableInt(tracks.getLimit());
+            out.writeString(tracks.getNext());
+            out.writeNullableInt(tracks.getOffset());
+            out.writeString(tracks.getPrevious());
+            out.writeNullableInt(tracks.getTotal());
+            List<Track> items = tracks.getItems();
+            out.writeVarInt(items == null ? 0 : items.size() + 1);
+            if (items != null) {
+                for (Track track : items) {
+                    writeTrack(out, track);
+                }
+            }
+        }
+    }
+
+    Album readAlbum(BinaryReader in) {
+        Album album = new Album();
+        String id = in.readString();
+        album.setId(id);
+        album.setName(in.readString());
+        album.setType(readInterned(in));
+        album.setUri(readLinked(in, id));
+        album.setHref(readLinked(in, id));
+        album.setExternalUrls(readUrls(in, id));
+        album.setAlbumType(readInterned(in));
+        album.setTotalTracks(in.readNullableInt());
+        album.setReleaseDate(in.readString());
+        album.setReleaseDatePrecision(readInterned(in));
+        album.setGenres(readInternedList(in));
+        album.setLabel(in.readString());
+        album.setPopularity(in.readNullableInt());
+        album.setArtists(readArtists(in));
+        album.setImages(readImages(in));
+        album.setMarkets(readMarkets(in));
+        if (in.readByte() != 0) {
+            Album.Tracks tracks = new Album.Tracks();
+            tracks.setHref(in.readString());
+            tracks.setLimit(in.readNullableInt());
+            tracks.setNext(in.readString());
+            tracks.setOffset(in.readNullableInt());
+            tracks.setPrevious(in.readString());
+            tracks.setTotal(in.readNullableInt());
+            int count = in.readVarInt();
+            if (count > 0) {
+                List<Track> items = new ArrayList<>(count - 1);
+                for (int i = 0; i < count - 1; i++) {
+                    items.add(readTrack(in));
+                }
+                tracks.setItems(items);
+            }
+            album.setTracks(tracks);
+        }
+        return album;
+    }
+
+    void writeTrack(BinaryWriter out, Track track) {
+        String id = track.getId();
+        out.writeString(id);
+        out.writeString(track.getName());
+        writeInterned(out, track.getType());
+        writeLinked(out, track.getUri(), id);
+        writeLinked(out, track.getHref(), id);
+        writeUrls(out, track.getExternalUrls(), id);
+        out.writeString(track.getPreviewUrl());
+        out.writeNullableInt(track.getTrackNumber());
+        out.writeNullableInt(track.getDurationMs());
+        out.writeNullableBoolean(track.getExplicit());
+        out.writeNullableBoolean(track.getLocal());
+        out.writeNullableInt(track.getPopularity());
+        out.writeNullableBoolean(track.getIsPlayable());
+        writeArtists(out, track.getArtists());
+        if (track.getAlbum() == null) {
+            out.writeByte(0);
+        } else {
+            out.writeByte(1);
+            writeAlbum(out, track.getAlbum());
+        }
+        writeMarkets(out, track.getAvailableMarkets());
+        out.writeNullableInt(track.getDiscNumber());
+    }
+
+    Track readTrack(BinaryReader in) {
+        Track track = new Track();
+        String id = in.readString();
+        track.setId(id);
+        track.setName(in.readString());
+        track.setType(readInterned(in));
+        track.setUri(readLinked(in, id));
+        track.setHref(readLinked(in, id));
+        track.setExternalUrls(readUrls(in, id));
+        track.setPreviewUrl(in.readString());
+        track.setTrackNumber(in.readNullableInt());
+        track.setDurationMs(in.readNullableInt());
+        track.setExplicit(in.readNullableBoolean());
+        track.setLocal(in.readNullableBoolean());
+        track.setPopularity(in.readNullableInt());
+        track.setIsPlayable(in.readNullableBoolean());
+        track.setArtists(readArtists(in));
+        if (in.readByte() != 0) {
+            track.setAlbum(readAlbum(in));
+        }
+        track.setAvailableMarkets(readMarkets(in));
+        track.setDiscNumber(in.readNullableInt());
+        return track;
+    }
+
+    private void writeArtists(BinaryWriter out, List<Artist> artists) {
+        out.writeVarInt(artists == null ? 0 : artists.size() + 1);
+        if (artists != null) {
+            for (Artist artist : artists) {
+                writeArtist(out, artist);
+            }
+        }
+    }
+
+    private List<Artist> readArtists(BinaryReader in) {
+        int count = in.readVarInt();
+        if (count == 0) {
+            return null;
+        }
+        List<Artist> artists = new ArrayList<>(count - 1);
+        for (int i = 0; i < count - 1; i++) {
+            artists.add(readArtist(in));
+        }
+        return artists;
+    }
+
+    private void writeImages(BinaryWriter out, List<Artist.Image> images) {
+        out.writeVarInt(images == null ? 0 : images.size() + 1);
+        if (images != null) {
+            for (Artist.Image image : images) {
+                out.writeString(image.getUrl());
+                out.writeNullableInt(image.getHeight());
+                out.writeNullableInt(image.getWidth());
+            }
+        }
+    }
+
+    private List<Artist.Image> readImages(BinaryReader in) {
+        int count = in.readVarInt();
+        if (count == 0) {
+            return null;
+        }
+        List<Artist.Image> images = new ArrayList<>(count - 1);
+        for (int i = 0; i < count - 1; i++) {
+            Artist.Image image = new Artist.Image();
+            image.setUrl(in.readString());
+            image.setHeight(in.readNullableInt());
+            image.setWidth(in.readNullableInt());
+            images.add(image);
+        }
+        return images;
+    }
+
+    private static void writeMarkets(BinaryWriter out, MarketSet markets) {
+        if (markets == null) {
+            out.writeByte(0);
+            return;
+        }
+        out.writeByte(1);
+        long[] bits = markets.dictionaryBits();
+        out.writeVarInt(bits.length);
+        for (long word : bits) {
+            out.writeLong(word);
+        }
+        List<String> unknown = markets.unknownCodes();
+        out.writeVarInt(unknown.size());
+        for (String code : unknown) {
+            out.writeString(code);
+        }
+    }
+
+    private static MarketSet readMarkets(BinaryReader in) {
+        if (in.readByte() == 0) {
+            return null;
+        }
+        long[] bits = new long[in.readVarInt()];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = in.readLong();
+        }
+        int unknownCount = in.readVarInt();
+        List<String> unknown = new ArrayList<>(unknownCount);
+        for (int i = 0; i < unknownCount; i++) {
+            unknown.add(in.readString());
+        }
+        return MarketSet.fromDictionaryBits(bits, unknown);
+    }
+
+    private void writeUrls(BinaryWriter out, Map<String, String> urls, String id) {
+        out.writeVarInt(urls == null ? 0 : urls.size() + 1);
+        if (urls != null) {
+            for (Map.Entry<String, String> url : urls.entrySet()) {
+                writeInterned(out, url.getKey());
+                writeLinked(out, url.getValue(), id);
+            }
+        }
+    }
+
+    private Map<String, String> readUrls(BinaryReader in, String id) {
+        int count = in.readVarInt();
+        if (count == 0) {
+            return null;
+        }
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (int i = 0; i < count - 1; i++) {
+            urls.put(readInterned(in), readLinked(in, id));
+        }
+        return urls;
+    }
+
+    private void writeInternedList(BinaryWriter out, List<String> values) {
+        out.writeVarInt(values == null ? 0 : values.size() + 1);
+        if (values != null) {
+            for (String value : values) {
+                writeInterned(out, value);
+            }
+        }
+    }
+
+    private List<String> readInternedList(BinaryReader in) {
+        int count = in.readVarInt();
+        if (count == 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(count - 1);
+        for (int i = 0; i < count - 1; i++) {
+            values.add(readInterned(in));
+        }
+        return values;
+    }
+
+    // 0 null, 1 inline text, n >= 2 string table id n - 2
+    private void writeInterned(BinaryWriter out, String value) {
+        if (value == null) {
+            out.writeVarInt(NULL);
+            return;
+        }
+        int id = strings.idOf(value);
+        if (id < 0) {
+            out.writeVarInt(INLINE);
+            out.writeString(value);
+        } else {
+            out.writeVarInt(INTERNED + id);
+        }
+    }
+
+    private String readInterned(BinaryReader in) {
+        int tag = in.readVarInt();
+        if (tag == NULL) {
+            return null;
+        }
+        return tag == INLINE ? in.readString() : strings.get(tag - INTERNED);
+    }
+
+    // Like writeInterned, but an interned value is a prefix the entity id is appended to
+    private void writeLinked(BinaryWriter out, String value, String id) {
+        if (value != null && id != null && !id.isEmpty() && value.endsWith(id)) {
+            int prefix = strings.idOf(value.substring(0, value.length() - id.length()));
+            if (prefix >= 0) {
+                out.writeVarInt(INTERNED + prefix);
+                return;
+            }
+        }
+        if (value == null) {
+            out.writeVarInt(NULL);
+        } else {
+            out.writeVarInt(INLINE);
+            out.writeString(value);
+        }
+    }
+
+    private String readLinked(BinaryReader in, String id) {
+        int tag = in.readVarInt();
+        if (tag == NULL) {
+            return null;
+        }
+        return tag == INLINE ? in.readString() : strings.get(tag - INTERNED) + id;
+    }
+}
@@ -0,0 +1,262 @@
+package com.spotify.app.catalog;
+
+import com.spotify.app.config.CatalogStoreConfig;
+import com.spotify.app.model.Album;
+import com.spotify.app.model.Artist;
+import com.spotify.app.service.UpstreamRoute;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Off-heap store for artists and albums, sized for millions of entities without growing the heap
+ * or the GC's work. Entities are encoded with {@link CatalogCodec} and appended to direct
+ * {@link ByteBuffer} slabs; the only on-heap structure is an open-addressing index of two
+ * {@code long[]} arrays mapping a 64-bit hash of kind and id to the record's address. Once
+ * {@code max-bytes} is reached the oldest slab is dropped with everything in it, which for a
+ * cache filled in arrival order is close to dropping the least recently fetched entities.
+ * <p>
+ * Records are never modified in place: a replaced or expired entity stays in its slab until the
+ * slab is dropped. Reads decode outside the lock, since a slab a reader holds is never rewritten.
+ */
+@Component
+@Slf4j
+public class CatalogStore {
+
+    private static final byte ARTIST = 1;
+    private static final byte ALBUM = 2;
+    // [int length][byte kind][long expiresAtMillis], then the encoded entity
+    private static final int HEADER_BYTES = 4 + 1 + 8;
+    private static final double MAX_LOAD = 0.6;
+
+    private final CatalogStoreConfig config;
+    private final CatalogCodec codec;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<BinaryWriter> writers = ThreadLocal.withInitial(BinaryWriter::new);
+
+    // Guarded by lock
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private long firstSlab;
+    private long[] keys;
+    private long[] addresses;
+    private int size;
+
+    public CatalogStore(CatalogStoreConfig config) {
+        this.config = config;
+        this.codec = new CatalogCodec(new StringTable(config.getMaxInternedStrings()));
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (config.getInitialEntities() / MAX_LOAD)) - 1) << 1;
+        this.keys = new long[capacity];
+        this.addresses = new long[capacity];
+    }
+
+    /**
+     * True if responses of this route are kept here instead of in the response cache.
+     */
+    public boolean stores(UpstreamRoute route) {
+        return config.isEnabled() && (route == UpstreamRoute.ARTIST || route == UpstreamRoute.ALBUM);
+    }
+
+    /**
+     * The stored, unexpired entity, decoded into a new object, or null.
+     */
+    public <T> T get(Class<T> type, String id) {
+        byte kind = kindOf(type);
+        ByteBuffer slab;
+        int offset;
+        lock.readLock().lock();
+        try {
+            int slot = find(hash(kind, id));
+            if (slot < 0) {
+                return null;
+            }
+            long address = addresses[slot];
+            slab = slabs.get((int) ((address >>> 32) - firstSlab));
+            offset = (int) address;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (slab.get(offset + 4) != kind || slab.getLong(offset + 5) < System.currentTimeMillis()) {
+            return null;
+        }
+        BinaryReader in = new BinaryReader(slab, offset + HEADER_BYTES);
+        Object entity = kind == ARTIST ? codec.readArtist(in) : codec.readAlbum(in);
+        String storedId = kind == ARTIST ? ((Artist) entity).getId() : ((Album) entity).getId();
+        // Two ids sharing a 64-bit hash: the later one won the slot
+        return id.equals(storedId) ? type.cast(entity) : null;
+    }
+
+    public boolean contains(Class<?> type, String id) {
+        byte kind = kindOf(type);
+        lock.readLock().lock();
+        try {
+            int slot = find(hash(kind, id));
+            if (slot < 0) {
+                return false;
+            }
+            long address = addresses[slot];
+            ByteBuffer slab = slabs.get((int) ((address >>> 32) - firstSlab));
+            return slab.getLong((int) address + 5) >= System.currentTimeMillis();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores an artist or album for {@code ttl} and returns it. Entities larger than a slab are
+     * not stored.
+     */
+    public <T> T put(T entity, Duration ttl) {
+        if (entity == null) {
+            return null;
+        }
+        byte kind = kindOf(entity.getClass());
+        String id = kind == ARTIST ? ((Artist) entity).getId() : ((Album) entity).getId();
+        if (id == null) {
+            return entity;
+        }
+
+        BinaryWriter out = writers.get();
+        out.reset();
+        if (kind == ARTIST) {
+            codec.writeArtist(out, (Artist) entity);
+        } else {
+            codec.writeAlbum(out, (Album) entity);
+        }
+        int length = HEADER_BYTES + out.length();
+        if (length > config.getSlabBytes()) {
+            log.debug("Not storing {} {}: {} bytes do not fit a slab", entity.getClass().getSimpleName(), id, length);
+            return entity;
+        }
+
+        lock.writeLock().lock();
+        try {
+            long address = allocate(length);
+            ByteBuffer slab = slabs.get(slabs.size() - 1);
+            int offset = (int) address;
+            slab.putInt(offset, length);
+            slab.put(offset + 4, kind);
+            slab.putLong(offset + 5, System.currentTimeMillis() + ttl.toMillis());
+            slab.put(offset + HEADER_BYTES, out.buffer(), 0, out.length());
+            insert(hash(kind, id), address);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return entity;
+    }
+
+    /**
+     * Number of indexed entities, expired ones included until their slab is dropped.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long allocatedBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) slabs.size() * config.getSlabBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Bump allocation in the newest slab, opening a new one (and dropping the oldest) when full
+    private long allocate(int length) {
+        ByteBuffer current = slabs.isEmpty() ? null : slabs.get(slabs.size() - 1);
+        if (current == null || current.position() + length > current.capacity()) {
+            if (!slabs.isEmpty() && (long) (slabs.size() + 1) * config.getSlabBytes() > config.getMaxBytes()) {
+                dropOldestSlab();
+            }
+            current = ByteBuffer.allocateDirect(config.getSlabBytes());
+            slabs.add(current);
+        }
+        int offset = current.position();
+        current.position(offset + length);
+        long sequence = firstSlab + slabs.size() - 1;
+        return (sequence << 32) | offset;
+    }
+
+    private void dropOldestSlab() {
+        slabs.remove(0);
+        firstSlab++;
+        rehash(keys.length);
+        log.debug("Dropped oldest catalog slab, {} entities remain", size);
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        for (int slot = (int) key & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(long key, long address) {
+        if (size + 1 > keys.length * MAX_LOAD) {
+            rehash(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = (int) key & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == 0) {
+            size++;
+        }
+        keys[slot] = key;
+        addresses[slot] = address;
+    }
+
+    // Rebuilds the index at the given capacity, leaving out entries in dropped slabs
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldAddresses = addresses;
+        keys = new long[capacity];
+        addresses = new long[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0 && (oldAddresses[i] >>> 32) >= firstSlab) {
+                insert(oldKeys[i], oldAddresses[i]);
+            }
+        }
+    }
+
+    private static byte kindOf(Class<?> type) {
+        if (type == Artist.class) {
+            return ARTIST;
+        }
+        if (type == Album.class) {
+            return ALBUM;
+        }
+        throw new IllegalArgumentException("Catalog store does not hold " + type.getSimpleName());
+    }
+
+    // FNV-1a over the id, finished with the murmur3 mixer; 0 marks an empty slot
+    private static long hash(byte kind, String id) {
+        long hash = 0xcbf29ce484222325L ^ kind;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash != 0 ? hash : 1;
+    }
+}
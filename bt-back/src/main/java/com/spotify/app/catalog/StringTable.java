@@ -0,0 +1,56 @@
+package com.spotify.app.catalog;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns low-cardinality strings (entity types, genres, URL prefixes) so records store a
+ * small id instead of the text. Grows up to a fixed size; callers store the text inline beyond it.
+ */
+final class StringTable {
+
+    private final int maxSize;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] strings = new String[256];
+    private int size;
+
+    StringTable(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Id of the string, or -1 when the table is full and the string is not in it.
+     */
+    int idOf(String value) {
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+            if (size >= maxSize) {
+                return -1;
+            }
+            String[] current = strings;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, Math.min(maxSize, current.length * 2));
+            }
+            current[size] = value;
+            strings = current;
+            ids.put(value, size);
+            return size++;
+        }
+    }
+
+    String get(int id) {
+        return strings[id];
+    }
+
+    int size() {
+        return ids.size();
+    }
+}
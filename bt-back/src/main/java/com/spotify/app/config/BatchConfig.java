@@ -0,0 +1,14 @@
+package com.spotify.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "batch")
+@Data
+public class BatchConfig {
+
+    private int maxRequests = 50;   // Sub-requests accepted in one batch
+    private int concurrency = 8;    // Sub-requests of one batch running at the same time
+}
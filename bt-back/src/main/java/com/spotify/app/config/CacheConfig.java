@@ -0,0 +1,18 @@
+package com.spotify.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "cache")
+@Data
+public class CacheConfig {
+
+    private boolean enabled = true;
+    private Duration catalogTtl = Duration.ofMinutes(10);  // Artists, albums, tracks, search results
+    private Duration userTtl = Duration.ofMinutes(1);      // Profile and top artists, cached per user
+    private int maxEntries = 10_000;
+}
@@ -0,0 +1,16 @@
+package com.spotify.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "capture")
+@Data
+public class CaptureConfig {
+
+    private boolean enabled = false;
+    private String directory = "capture";  // One gzipped JSON lines file per run
+    private String salt;                   // Anonymization salt, random per run when not set
+    private int queueCapacity = 10_000;    // Events beyond this are dropped rather than slowing requests
+}
@@ -0,0 +1,17 @@
+package com.spotify.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "catalog-store")
+@Data
+public class CatalogStoreConfig {
+
+    private boolean enabled = false;
+    private int slabBytes = 64 * 1024 * 1024;       // Size of each direct buffer entities are appended to
+    private long maxBytes = 1024L * 1024 * 1024;     // Oldest slab is dropped beyond this
+    private int initialEntities = 1 << 16;          // Initial index capacity, grows as needed
+    private int maxInternedStrings = 1 << 16;       // Distinct low-cardinality strings kept in the table
+}
@@ -0,0 +1,17 @@
+package com.spotify.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "error-log")
+@Data
+public class ErrorLogConfig {
+
+    private int burst = 10;                         // Errors of one kind logged in full per window
+    private Duration window = Duration.ofMinutes(1);
+    private int sampleEvery = 100;                  // Past the burst, one in this many is logged
+}
@@ -0,0 +1,25 @@
+package com.spotify.app.config;
+
+import com.spotify.app.service.UpstreamRoute;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+
+@Configuration
+@ConfigurationProperties(prefix = "hedge")
+@Data
+public class HedgeConfig {
+
+    private boolean enabled = false;
+    private Set<UpstreamRoute> routes = EnumSet.allOf(UpstreamRoute.class);
+    private double percentile = 0.95;             // Hedge once the first attempt is slower than this
+    private Duration minDelay = Duration.ofMillis(20);
+    private int minSamples = 50;                  // Per route, before any hedge is sent
+    private int window = 512;                     // Recent latencies per route the percentile is taken from
+    private double budgetRatio = 0.05;            // Hedges allowed per upstream request
+    private int maxBurst = 10;
+}
@@ -0,0 +1,17 @@
+package com.spotify.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "negative-cache")
+@Data
+public class NegativeCacheConfig {
+
+    private boolean enabled = true;
+    private Duration ttl = Duration.ofHours(1);     // Ids are remembered as missing for between half and all of this
+    private int maxIds = 50_000;                    // Missing ids remembered per generation; two generations are kept
+}
@@ -0,0 +1,20 @@
+package com.spotify.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "prefetch")
+@Data
+public class PrefetchConfig {
+
+    private boolean enabled = true;
+    private int albums = 3;                    // Album details prefetched from the top of an artist's albums
+    private double rate = 5;                   // Prefetch budget, upstream calls per second
+    private int burst = 10;
+    private int threads = 2;
+    private int queueCapacity = 50;            // Prefetches beyond this are dropped
+    private int upstreamWindowLimit = 600;     // Upstream calls per 30 s we treat as the rate limit
+    private double headroom = 0.7;             // Stop prefetching above this share of the limit
+}
@@ -0,0 +1,23 @@
+package com.spotify.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "requests")
+@Data
+public class RequestConfig {
+
+    private int threads = 64;                  // Workers running API requests off the servlet threads
+    private int queueCapacity = 256;           // Requests waiting for a worker before 503
+    private Duration timeout = Duration.ofSeconds(30);
+    private boolean latestSearchWins = true;   // Honor X-Search-Session: a newer search cancels the older one
+    private int maxRunningPerUser = 0;         // Requests of one userId running at once; 0 means up to threads
+    private int maxQueuedPerUser = 0;          // Requests of one userId waiting before 429; 0 means up to queue-capacity
+    private Map<String, Integer> weights = new HashMap<>();  // Share of a userId relative to the default 1
+}
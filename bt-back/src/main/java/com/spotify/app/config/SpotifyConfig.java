@@ -4,6 +4,8 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 @ConfigurationProperties(prefix = "spotify")
 @Data
@@ -17,4 +19,5 @@ public class SpotifyConfig {
     private String tokenUrl;
     private String apiUrl;
     private String scopes;
+    private Duration apiTimeout = Duration.ofSeconds(10);  // Per upstream attempt, below requests.timeout
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.spotify.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "token.write-behind")
+@Data
+public class TokenWriteBehindConfig {
+
+    private boolean enabled = false;
+    private Duration flushInterval = Duration.ofSeconds(2);
+    private int batchSize = 100;                          // Also the dirty count that triggers an early flush
+    private String journal = "data/token-journal.jsonl";  // Unflushed changes, replayed on startup
+}
@@ -0,0 +1,19 @@
+package com.spotify.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "upstream-limit")
+@Data
+public class UpstreamLimitConfig {
+
+    private boolean enabled = true;
+    private int initialLimit = 20;          // In-flight calls per route before the first adjustments
+    private int minLimit = 4;
+    private int maxLimit = 200;
+    private double smoothing = 0.5;         // Weight of each new limit estimate, 1 to apply it as is
+    private int probeMultiplier = 30;       // Re-measure the no-load RTT about every limit * this samples
+    private double prefetchShare = 0.5;     // Part of the limit prefetches may use
+}
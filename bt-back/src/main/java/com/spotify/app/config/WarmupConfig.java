@@ -0,0 +1,16 @@
+package com.spotify.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "warmup")
+@Data
+public class WarmupConfig {
+
+    private boolean enabled = true;
+    private int topArtistsLimit = 10;  // Must match the frontend's page size to produce cache hits
+    private int artists = 5;           // Top artists whose detail pages are fetched
+    private int threads = 4;
+}
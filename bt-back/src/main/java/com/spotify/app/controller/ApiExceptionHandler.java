@@ -0,0 +1,72 @@
+package com.spotify.app.controller;
+
+import com.spotify.app.service.LogSampler;
+import com.spotify.app.service.RateLimitedException;
+import com.spotify.app.service.UpstreamException;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Error responses for {@link SpotifyController}, including failures its workers report through
+ * the {@code DeferredResult}. Upstream failures keep their mapped status; only server-side errors
+ * are logged, sampled per kind by {@link LogSampler}, and only unexpected ones with a stack trace.
+ * Spring MVC's own exceptions (missing parameters, unreadable bodies) keep their standard answers.
+ */
+@RestControllerAdvice(assignableTypes = SpotifyController.class)
+@RequiredArgsConstructor
+@Slf4j
+public class ApiExceptionHandler extends ResponseEntityExceptionHandler {
+
+    private final LogSampler logSampler;
+
+    @ExceptionHandler(UpstreamException.class)
+    public ResponseEntity<Map<String, Object>> handleUpstream(UpstreamException e, HttpServletRequest request) {
+        if (e.getStatus().is5xxServerError()) {
+            long count = logSampler.sample(e.getError() + "|" + e.getRoute());
+            if (count > 0) {
+                log.warn("{} {} answered {}: {} ({} since last logged)",
+                        request.getMethod(), request.getRequestURI(), e.getStatus().value(), e.getMessage(), count);
+            }
+        } else {
+            log.debug("{} {} answered {}: {}", request.getMethod(), request.getRequestURI(), e.getStatus().value(), e.getMessage());
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(e.getStatus());
+        if (e instanceof RateLimitedException rateLimited && !rateLimited.getRetryAfter().isZero()) {
+            response.header(HttpHeaders.RETRY_AFTER, String.valueOf(rateLimited.getRetryAfter().toSeconds()));
+        }
+        return response.body(e.body());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> handleBadRequest(IllegalArgumentException e, HttpServletRequest request) {
+        log.debug("{} {} rejected: {}", request.getMethod(), request.getRequestURI(), e.getMessage());
+        return ResponseEntity.badRequest().body(errorBody("bad_request", e.getMessage()));
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<Map<String, Object>> handleUnexpected(Exception e, HttpServletRequest request) {
+        long count = logSampler.sample(e.getClass().getName());
+        if (count > 0) {
+            log.error("{} {} failed ({} since last logged)", request.getMethod(), request.getRequestURI(), count, e);
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorBody("internal_error", e.getMessage()));
+    }
+
+    private static Map<String, Object> errorBody(String error, String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", error);
+        errorResponse.put("message", message);
+        return errorResponse;
+    }
+}
@@ -0,0 +1,195 @@
+package com.spotify.app.controller;
+
+import com.spotify.app.config.RequestConfig;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Orders queued API requests across users by deficit round robin, so a client looping over
+ * expensive requests gets its share of the workers and no more. Each user with queued work takes
+ * a turn in a ring; a turn adds the user's weight to its deficit, and a request is dispatched once
+ * the deficit covers its cost (1, or the number of sub-requests of a batch). A user at
+ * {@code max-running-per-user} sits out until one of its requests finishes, and one with
+ * {@code max-queued-per-user} waiting is turned away instead of queueing further. Both caps default
+ * to the global limits: every caller is "default" until the app has real user identities.
+ */
+final class FairScheduler {
+
+    // Weighs the Retry-After estimate; recent requests count for about a tenth
+    private static final double SERVICE_TIME_WEIGHT = 0.1;
+
+    private final RequestConfig config;
+    private final int maxRunningPerUser;
+    private final int maxQueuedPerUser;
+    private final Map<String, UserQueue> users = new HashMap<>();
+    private final ArrayDeque<UserQueue> ready = new ArrayDeque<>();
+    private int queued;
+    private double serviceNanos = Duration.ofMillis(100).toNanos();
+
+    FairScheduler(RequestConfig config) {
+        this.config = config;
+        this.maxRunningPerUser = config.getMaxRunningPerUser() > 0 ? config.getMaxRunningPerUser() : config.getThreads();
+        this.maxQueuedPerUser = config.getMaxQueuedPerUser() > 0 ? config.getMaxQueuedPerUser() : config.getQueueCapacity();
+    }
+
+    /**
+     * Queues {@code work} for {@code userId}.
+     *
+     * @throws UserLimitException if the user already has {@code max-queued-per-user} requests waiting
+     * @throws RejectedExecutionException if {@code queue-capacity} requests are waiting overall
+     */
+    synchronized Task offer(String userId, int cost, Runnable work) {
+        UserQueue user = users.computeIfAbsent(userId, UserQueue::new);
+        // Overall first, so a per-user cap left at the global limit never turns a full queue into 429s
+        if (queued >= config.getQueueCapacity()) {
+            removeIfIdle(user);
+            throw new RejectedExecutionException("Request queue is full");
+        }
+        if (user.tasks.size() >= maxQueuedPerUser) {
+            throw new UserLimitException(retryAfter(user));
+        }
+        Task task = new Task(user, Math.max(1, cost), work);
+        user.tasks.addLast(task);
+        queued++;
+        if (!user.ready && user.running < maxRunningPerUser) {
+            user.ready = true;
+            ready.addLast(user);
+            notify();
+        }
+        return task;
+    }
+
+    /**
+     * Blocks until some user's turn yields a request to run.
+     */
+    synchronized Task next() throws InterruptedException {
+        while (true) {
+            while (ready.isEmpty()) {
+                wait();
+            }
+            UserQueue user = ready.peekFirst();
+            if (!user.credited) {
+                // A weight below 1 would never cover a task and spin here holding the lock
+                user.deficit += Math.max(1, config.getWeights().getOrDefault(user.id, 1));
+                user.credited = true;
+            }
+            Task head = user.tasks.peekFirst();
+            if (head.cost > user.deficit) {
+                // Turn over; the deficit carries to the next one
+                user.credited = false;
+                ready.addLast(ready.pollFirst());
+                continue;
+            }
+            user.deficit -= head.cost;
+            user.tasks.pollFirst();
+            user.running++;
+            queued--;
+            if (user.tasks.isEmpty() || user.running >= maxRunningPerUser) {
+                ready.pollFirst();
+                user.ready = false;
+                user.credited = false;
+                if (user.tasks.isEmpty()) {
+                    user.deficit = 0;
+                }
+            }
+            return head;
+        }
+    }
+
+    synchronized void done(Task task, long elapsedNanos) {
+        serviceNanos += SERVICE_TIME_WEIGHT * (elapsedNanos - serviceNanos);
+        UserQueue user = task.user;
+        user.running--;
+        if (!user.ready && !user.tasks.isEmpty()) {
+            user.ready = true;
+            ready.addLast(user);
+            notify();
+        }
+        removeIfIdle(user);
+    }
+
+    private synchronized void remove(Task task) {
+        UserQueue user = task.user;
+        if (user.tasks.remove(task)) {
+            queued--;
+            if (user.tasks.isEmpty() && user.ready) {
+                ready.remove(user);
+                user.ready = false;
+                user.credited = false;
+                user.deficit = 0;
+            }
+            removeIfIdle(user);
+        }
+    }
+
+    // Time for the user's backlog to drain at its concurrency cap, at the recent service time
+    private Duration retryAfter(UserQueue user) {
+        double nanos = (user.tasks.size() + user.running) * serviceNanos / Math.max(1, maxRunningPerUser);
+        return Duration.ofSeconds(Math.max(1, (long) Math.ceil(nanos / 1e9)));
+    }
+
+    private void removeIfIdle(UserQueue user) {
+        if (user.tasks.isEmpty() && user.running == 0) {
+            users.remove(user.id, user);
+        }
+    }
+
+    private static final class UserQueue {
+        final String id;
+        final ArrayDeque<Task> tasks = new ArrayDeque<>();
+        int running;
+        int deficit;
+        boolean credited;   // Got this turn's weight already
+        boolean ready;      // In the ring: has queued work and is below its cap
+
+        UserQueue(String id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * A queued request. Cancelling it drops it from the queue; a running one is left to its
+     * {@code RequestCancellation}, since interrupting the worker could break I/O it is doing.
+     */
+    final class Task {
+        final UserQueue user;
+        final int cost;
+        final FutureTask<Void> work;
+
+        Task(UserQueue user, int cost, Runnable work) {
+            this.user = user;
+            this.cost = cost;
+            this.work = new FutureTask<>(work, null);
+        }
+
+        void cancel() {
+            if (work.cancel(false)) {
+                remove(this);
+            }
+        }
+    }
+
+    static final class UserLimitException extends RejectedExecutionException {
+        private final Duration retryAfter;
+
+        UserLimitException(Duration retryAfter) {
+            super("Too many requests queued for this user");
+            this.retryAfter = retryAfter;
+        }
+
+        Duration getRetryAfter() {
+            return retryAfter;
+        }
+
+        // Thrown at every request over the limit; the stack trace would say nothing new
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.spotify.app.controller;
+
+import com.spotify.app.config.RequestConfig;
+import com.spotify.app.service.RequestCancellation;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Runs API requests on worker threads behind a {@link DeferredResult}. Workers take requests in
+ * per-user fair order from a {@link FairScheduler}, so one heavy client cannot starve the others;
+ * a user over its queue limit gets an immediate 429 with {@code Retry-After}. When the request
+ * ends without the worker's answer (client disconnect, timeout, or a newer search from the same
+ * session), its {@link RequestCancellation} disposes the upstream call the worker is waiting on
+ * instead of waiting for a response nobody will read. The worker is never interrupted, so a token
+ * refresh it is in the middle of still gets saved.
+ */
+@Component
+@Slf4j
+public class RequestExecutor {
+
+    public static final String SEARCH_SESSION_HEADER = "X-Search-Session";
+
+    // Answered often under load, and immutable, so built once
+    private static final ResponseEntity<?> OVERLOADED =
+            error(HttpStatus.SERVICE_UNAVAILABLE, "overloaded", "Too many requests in progress");
+    private static final ResponseEntity<?> TIMED_OUT =
+            error(HttpStatus.GATEWAY_TIMEOUT, "timeout", "Request timed out");
+    private static final ResponseEntity<?> SUPERSEDED =
+            error(HttpStatus.CONFLICT, "superseded", "A newer request from this session replaced this one");
+
+    private final RequestConfig config;
+    private final FairScheduler scheduler;
+    private final List<Thread> workers = new ArrayList<>();
+    private final Map<String, Running> latestBySession = new ConcurrentHashMap<>();
+    private volatile boolean stopped;
+
+    public RequestExecutor(RequestConfig config) {
+        this.config = config;
+        this.scheduler = new FairScheduler(config);
+        for (int i = 1; i <= config.getThreads(); i++) {
+            Thread worker = new Thread(this::work, "api-request-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    public DeferredResult<ResponseEntity<?>> submit(String userId, Supplier<ResponseEntity<?>> work) {
+        return submit(userId, 1, null, work);
+    }
+
+    /**
+     * With a session key, a later submission for the same key cancels this one, which then answers
+     * 409. Without one this behaves like {@link #submit(String, Supplier)}.
+     */
+    public DeferredResult<ResponseEntity<?>> submit(String userId, String session, Supplier<ResponseEntity<?>> work) {
+        return submit(userId, 1, session, work);
+    }
+
+    /**
+     * For work that costs more than one request in the user's fair share, like a batch.
+     */
+    public DeferredResult<ResponseEntity<?>> submit(String userId, int cost, Supplier<ResponseEntity<?>> work) {
+        return submit(userId, cost, null, work);
+    }
+
+    private DeferredResult<ResponseEntity<?>> submit(String userId, int cost, String session,
+                                                     Supplier<ResponseEntity<?>> work) {
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(config.getTimeout().toMillis());
+        RequestCancellation cancellation = new RequestCancellation();
+        FairScheduler.Task task;
+        try {
+            task = scheduler.offer(userId, cost, () -> {
+                try {
+                    ResponseEntity<?> response = cancellation.call(work);
+                    if (!cancellation.isCancelled()) {
+                        result.setResult(response);
+                    }
+                } catch (Throwable e) {
+                    // Errors too: the task's FutureTask would keep them and the request would wait for its timeout
+                    if (!cancellation.isCancelled()) {
+                        result.setErrorResult(e);
+                    }
+                }
+            });
+        } catch (FairScheduler.UserLimitException e) {
+            result.setResult(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter().toSeconds()))
+                    .body(Map.of("error", "too_many_requests", "message", e.getMessage())));
+            return result;
+        } catch (RejectedExecutionException e) {
+            result.setResult(OVERLOADED);
+            return result;
+        }
+
+        Running running = new Running(task, cancellation, result);
+        result.onTimeout(() -> {
+            running.cancel();
+            result.setResult(TIMED_OUT);
+        });
+        result.onError(error -> running.cancel());
+
+        if (session == null || !config.isLatestSearchWins()) {
+            result.onCompletion(running::cancel);
+        } else {
+            Running previous = latestBySession.put(session, running);
+            if (previous != null) {
+                previous.cancel();
+                previous.result.setResult(SUPERSEDED);
+            }
+            result.onCompletion(() -> {
+                running.cancel();
+                latestBySession.remove(session, running);
+            });
+        }
+        return result;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        stopped = true;
+        workers.forEach(Thread::interrupt);
+    }
+
+    private void work() {
+        while (!stopped) {
+            FairScheduler.Task task;
+            try {
+                task = scheduler.next();
+            } catch (InterruptedException e) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                task.work.run();
+            } finally {
+                scheduler.done(task, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static ResponseEntity<?> error(HttpStatus status, String error, String message) {
+        return ResponseEntity.status(status).body(Map.of("error", error, "message", message));
+    }
+
+    private static final class Running {
+        final FairScheduler.Task task;
+        final RequestCancellation cancellation;
+        final DeferredResult<ResponseEntity<?>> result;
+
+        Running(FairScheduler.Task task, RequestCancellation cancellation, DeferredResult<ResponseEntity<?>> result) {
+            this.task = task;
+            this.cancellation = cancellation;
+            this.result = result;
+        }
+
+        void cancel() {
+            task.cancel();
+            cancellation.cancel();
+        }
+    }
+}
@@ -1,17 +1,25 @@
 package com.spotify.app.controller;
 
-import com.spotify.app.model.Album;
-import com.spotify.app.model.Artist;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotify.app.cache.ResponseCache;
+import com.spotify.app.model.BatchRequest;
+import com.spotify.app.service.BatchService;
 import com.spotify.app.service.SpotifyService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api")
@@ -19,70 +27,40 @@ import java.util.Map;
 @Slf4j
 public class SpotifyController {
 
+    private static final int MIN_GZIP_BYTES = 512;
+
     private final SpotifyService spotifyService;
+    private final RequestExecutor requestExecutor;
+    private final BatchService batchService;
+    private final ResponseCache responseCache;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/me")
-    public ResponseEntity<Map<String, Object>> getCurrentUser(
+    public DeferredResult<ResponseEntity<?>> getCurrentUser(
             @RequestParam(defaultValue = "default") String userId) {
 
-        try {
-            Map<String, Object> user = spotifyService.getCurrentUser(userId);
-            return ResponseEntity.ok(user);
-        } catch (Exception e) {
-            log.error("Error fetching current user", e);
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "fetch_failed");
-            errorResponse.put("message", e.getMessage());
-            return ResponseEntity.internalServerError().body(errorResponse);
-        }
+        return executeJson(userId, () -> spotifyService.getCurrentUser(userId));
     }
 
     @GetMapping("/me/top/artists")
-    public ResponseEntity<Map<String, Object>> getUserTopArtists(
+    public DeferredResult<ResponseEntity<?>> getUserTopArtists(
             @RequestParam(defaultValue = "default") String userId,
             @RequestParam(defaultValue = "medium_term") String timeRange,
             @RequestParam(defaultValue = "10") Integer limit) {
 
-        try {
-            Map<String, Object> topArtists = spotifyService.getUserTopArtists(userId, timeRange, limit);
-            return ResponseEntity.ok(topArtists);
-        } catch (RuntimeException e) {
-            log.error("Error fetching top artists: {}", e.getMessage());
-
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "fetch_failed");
-            errorResponse.put("message", e.getMessage());
-
-            if (e.getCause() instanceof WebClientResponseException) {
-                WebClientResponseException wcre = (WebClientResponseException) e.getCause();
-                errorResponse.put("spotify_status", wcre.getStatusCode().value());
-                errorResponse.put("spotify_error", wcre.getResponseBodyAsString());
-            }
-
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(errorResponse);
-        }
+        return executeJson(userId, () -> spotifyService.getUserTopArtists(userId, timeRange, limit));
     }
 
     @GetMapping("/artists/{id}")
-    public ResponseEntity<Object> getArtist(
+    public DeferredResult<ResponseEntity<?>> getArtist(
             @PathVariable String id,
             @RequestParam(defaultValue = "default") String userId) {
 
-        try {
-            Artist artist = spotifyService.getArtist(userId, id);
-            return ResponseEntity.ok(artist);
-        } catch (Exception e) {
-            log.error("Error fetching artist: {}", id, e);
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "fetch_failed");
-            errorResponse.put("message", e.getMessage());
-            return ResponseEntity.internalServerError().body(errorResponse);
-        }
+        return executeJson(userId, () -> spotifyService.getArtist(userId, id));
     }
 
     @GetMapping("/artists/{id}/albums")
-    public ResponseEntity<Map<String, Object>> getArtistAlbums(
+    public DeferredResult<ResponseEntity<?>> getArtistAlbums(
             @PathVariable String id,
             @RequestParam(defaultValue = "default") String userId,
             @RequestParam(required = false) String includeGroups,
@@ -90,78 +68,72 @@ public class SpotifyController {
             @RequestParam(defaultValue = "20") Integer limit,
             @RequestParam(defaultValue = "0") Integer offset) {
 
-        try {
-            Map<String, Object> albums = spotifyService.getArtistAlbums(userId, id, includeGroups, market, limit, offset);
-            return ResponseEntity.ok(albums);
-        } catch (Exception e) {
-            log.error("Error fetching albums for artist: {}", id, e);
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "fetch_failed");
-            errorResponse.put("message", e.getMessage());
-            return ResponseEntity.internalServerError().body(errorResponse);
-        }
+        return executeJson(userId, () -> spotifyService.getArtistAlbums(userId, id, includeGroups, market, limit, offset));
     }
 
     @GetMapping("/artists/{id}/top-tracks")
-    public ResponseEntity<Map<String, Object>> getArtistTopTracks(
+    public DeferredResult<ResponseEntity<?>> getArtistTopTracks(
             @PathVariable String id,
             @RequestParam(defaultValue = "default") String userId,
             @RequestParam(defaultValue = "US") String market) {
 
-        try {
-            Map<String, Object> topTracks = spotifyService.getArtistTopTracks(userId, id, market);
-            return ResponseEntity.ok(topTracks);
-        } catch (Exception e) {
-            log.error("Error fetching top tracks for artist: {}", id, e);
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "fetch_failed");
-            errorResponse.put("message", e.getMessage());
-            return ResponseEntity.internalServerError().body(errorResponse);
-        }
+        return executeJson(userId, () -> spotifyService.getArtistTopTracks(userId, id, market));
     }
 
     @GetMapping("/albums/{id}")
-    public ResponseEntity<Object> getAlbum(
+    public DeferredResult<ResponseEntity<?>> getAlbum(
             @PathVariable String id,
-            @RequestParam(defaultValue = "default") String userId) {
+            @RequestParam(defaultValue = "default") String userId,
+            @RequestParam(required = false) String market) {
 
-        try {
-            Album album = spotifyService.getAlbum(userId, id);
-            return ResponseEntity.ok(album);
-        } catch (Exception e) {
-            log.error("Error fetching album: {}", id, e);
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "fetch_failed");
-            errorResponse.put("message", e.getMessage());
-            return ResponseEntity.internalServerError().body(errorResponse);
-        }
+        return executeJson(userId, () -> spotifyService.getAlbum(userId, id, market));
     }
 
+    /**
+     * Searches sent with an {@code X-Search-Session} header are "latest wins": a newer search from
+     * the same session cancels one still in flight, which answers 409.
+     */
     @GetMapping("/search")
-    public ResponseEntity<Map<String, Object>> search(
+    public DeferredResult<ResponseEntity<?>> search(
             @RequestParam String q,
             @RequestParam(defaultValue = "default") String userId,
             @RequestParam(defaultValue = "artist,album,track") String type,
             @RequestParam(defaultValue = "10") Integer limit,
-            @RequestParam(defaultValue = "0") Integer offset) {
+            @RequestParam(defaultValue = "0") Integer offset,
+            @RequestHeader(value = RequestExecutor.SEARCH_SESSION_HEADER, required = false) String searchSession) {
 
         if (q == null || q.trim().isEmpty()) {
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "missing_query");
-            errorResponse.put("message", "Search query parameter 'q' is required");
-            return ResponseEntity.badRequest().body(errorResponse);
+            DeferredResult<ResponseEntity<?>> result = new DeferredResult<>();
+            result.setResult(ResponseEntity.badRequest()
+                    .body(errorBody("missing_query", "Search query parameter 'q' is required")));
+            return result;
         }
 
-        try {
-            Map<String, Object> searchResults = spotifyService.search(userId, q, type, limit, offset);
-            return ResponseEntity.ok(searchResults);
-        } catch (Exception e) {
-            log.error("Error performing search for query: {}", q, e);
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "search_failed");
-            errorResponse.put("message", e.getMessage());
-            return ResponseEntity.internalServerError().body(errorResponse);
+        String session = searchSession != null ? userId + ":" + searchSession : null;
+        boolean gzip = acceptsGzip();
+        return requestExecutor.submit(userId, session,
+                () -> encoded(responseCache.capture(() -> spotifyService.search(userId, q, type, limit, offset)), gzip));
+    }
+
+    /**
+     * Several of the GET endpoints above in one request, e.g.
+     * {@code {"requests": [{"id": "a", "path": "/api/albums/..."}, {"id": "s", "path": "/api/search?q=..."}]}}.
+     * Answers 200 with a status and body per sub-request.
+     */
+    @PostMapping("/batch")
+    public DeferredResult<ResponseEntity<?>> batch(
+            @RequestParam(defaultValue = "default") String userId,
+            @RequestBody BatchRequest request) {
+
+        List<BatchRequest.Item> items = request.getRequests();
+        if (items == null || items.isEmpty() || items.size() > batchService.getMaxRequests()) {
+            DeferredResult<ResponseEntity<?>> result = new DeferredResult<>();
+            result.setResult(ResponseEntity.badRequest()
+                    .body(errorBody("invalid_batch", "A batch needs between 1 and " + batchService.getMaxRequests() + " requests")));
+            return result;
         }
+
+        return requestExecutor.submit(userId, items.size(), () -> ResponseEntity.ok(batchService.execute(userId, items)));
     }
 
     @GetMapping("/health")
@@ -175,19 +147,86 @@ public class SpotifyController {
 
     // ArtistController.java
     @GetMapping("/artists/{id}/related-artists")
-    public ResponseEntity<Map<String, Object>> getRelatedArtists(
+    public DeferredResult<ResponseEntity<?>> getRelatedArtists(
             @PathVariable String id,
             @RequestParam(defaultValue = "default") String userId) {
-        try {
-            Map<String, Object> relatedArtists = spotifyService.getRelatedArtists(userId, id);
-            return ResponseEntity.ok(relatedArtists);
-        } catch (Exception e) {
-            log.error("Error fetching related artists for artist: {}", id, e);
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "fetch_failed");
-            errorResponse.put("message", e.getMessage());
-            return ResponseEntity.internalServerError().body(errorResponse);
+
+        return executeJson(userId, () -> spotifyService.getRelatedArtists(userId, id));
+    }
+
+    /**
+     * Runs the call on a request worker, in the user's fair share. Failures reach {@link ApiExceptionHandler} through the
+     * {@link DeferredResult}.
+     */
+    private DeferredResult<ResponseEntity<?>> executeJson(String userId, Supplier<?> call) {
+        boolean gzip = acceptsGzip();
+        return requestExecutor.submit(userId, () -> encoded(responseCache.capture(call), gzip));
+    }
+
+    /**
+     * Writes a cached response's stored JSON bytes as they are, gzipped if the client accepts it,
+     * instead of serializing the object again. Uncached values go through Jackson as usual.
+     */
+    private ResponseEntity<?> encoded(ResponseCache.Captured<?> result, boolean gzip) {
+        if (result.entry() == null) {
+            return ResponseEntity.ok(result.value());
+        }
+        byte[] json = result.entry().json(objectMapper);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip && json.length >= MIN_GZIP_BYTES) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(result.entry().gzip(objectMapper));
+        }
+        return response.body(json);
+    }
+
+    // Read on the servlet thread; workers have no request bound
+    private static boolean acceptsGzip() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            return acceptsGzip(attributes.getRequest().getHeader(HttpHeaders.ACCEPT_ENCODING));
         }
+        return false;
     }
 
-}
\ No newline at end of file
+    // An explicit gzip coding decides, otherwise "*" does; q=0 refuses the coding
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!name.equals("gzip") && !name.equals("*")) {
+                continue;
+            }
+            double q = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.length() > 2 && (param.charAt(0) == 'q' || param.charAt(0) == 'Q') && param.charAt(1) == '=') {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (name.equals("gzip")) {
+                gzip = q;
+            } else {
+                any = q;
+            }
+        }
+        Double q = gzip != null ? gzip : any;
+        return q != null && q > 0;
+    }
+
+    private static Map<String, Object> errorBody(String error, String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", error);
+        errorResponse.put("message", message);
+        return errorResponse;
+    }
+}
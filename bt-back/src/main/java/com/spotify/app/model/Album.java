@@ -44,10 +44,14 @@ public class Album {
 
     private List<Artist.Image> images;
 
-    private List<String> markets;
+    private MarketSet markets;
 
     private Tracks tracks;
 
+    public boolean isAvailableIn(String market) {
+        return markets == null || markets.isAvailableIn(market);
+    }
+
     @Data
     public static class Tracks {
         private String href;
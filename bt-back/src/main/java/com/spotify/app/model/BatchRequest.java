@@ -0,0 +1,21 @@
+package com.spotify.app.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchRequest {
+
+    private List<Item> requests;
+
+    @Data
+    public static class Item {
+
+        // Echoed back so callers can match responses without relying on order
+        private String id;
+
+        // An /api GET path with its query string, e.g. /api/albums/{id} or /api/search?q=...
+        private String path;
+    }
+}
@@ -0,0 +1,26 @@
+package com.spotify.app.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class BatchResponse {
+
+    private List<Item> responses;
+
+    @Data
+    @AllArgsConstructor
+    public static class Item {
+
+        private String id;
+
+        private String path;
+
+        private int status;
+
+        private Object body;
+    }
+}
@@ -0,0 +1,277 @@
+package com.spotify.app.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Set of market codes stored as a bitset over a fixed dictionary of Spotify's markets, instead of a
+ * list of ~185 strings per track. Codes outside the dictionary are kept as strings so nothing is
+ * lost. Identical sets are shared, and most tracks and albums are available in every market.
+ * Serialized as the usual JSON array of codes.
+ */
+@JsonSerialize(using = MarketSet.Serializer.class)
+@JsonDeserialize(using = MarketSet.Deserializer.class)
+public final class MarketSet extends AbstractList<String> {
+
+    private static final String[] CODES = {
+            "AD", "AE", "AG", "AL", "AM", "AO", "AR", "AT", "AU", "AZ", "BA", "BB", "BD", "BE", "BF",
+            "BG", "BH", "BI", "BJ", "BN", "BO", "BR", "BS", "BT", "BW", "BY", "BZ", "CA", "CD", "CG",
+            "CH", "CI", "CL", "CM", "CO", "CR", "CV", "CW", "CY", "CZ", "DE", "DJ", "DK", "DM", "DO",
+            "DZ", "EC", "EE", "EG", "ES", "ET", "FI", "FJ", "FM", "FR", "GA", "GB", "GD", "GE", "GH",
+            "GM", "GN", "GQ", "GR", "GT", "GW", "GY", "HK", "HN", "HR", "HT", "HU", "ID", "IE", "IL",
+            "IN", "IQ", "IS", "IT", "JM", "JO", "JP", "KE", "KG", "KH", "KI", "KM", "KN", "KR", "KW",
+            "KZ", "LA", "LB", "LC", "LI", "LK", "LR", "LS", "LT", "LU", "LV", "LY", "MA", "MC", "MD",
+            "ME", "MG", "MH", "MK", "ML", "MN", "MO", "MR", "MT", "MU", "MV", "MW", "MX", "MY", "MZ",
+            "NA", "NE", "NG", "NI", "NL", "NO", "NP", "NR", "NZ", "OM", "PA", "PE", "PG", "PH", "PK",
+            "PL", "PR", "PS", "PT", "PW", "PY", "QA", "RO", "RS", "RW", "SA", "SB", "SC", "SE", "SG",
+            "SI", "SK", "SL", "SM", "SN", "SR", "ST", "SV", "SZ", "TD", "TG", "TH", "TJ", "TL", "TN",
+            "TO", "TR", "TT", "TV", "TW", "TZ", "UA", "UG", "US", "UY", "UZ", "VC", "VE", "VN", "VU",
+            "WS", "XK", "ZA", "ZM", "ZW"};
+    private static final int WORDS = (CODES.length + 63) / 64;
+    private static final Map<String, Integer> INDEX = new HashMap<>();
+    private static final int MAX_SHARED = 4096;
+    private static final Map<BitsKey, MarketSet> SHARED = new ConcurrentHashMap<>();
+    private static final String[] NO_EXTRAS = new String[0];
+
+    static {
+        for (int i = 0; i < CODES.length; i++) {
+            INDEX.put(CODES[i], i);
+        }
+    }
+
+    private final long[] bits;
+    private final String[] extras;
+    private final int size;
+
+    private MarketSet(long[] bits, String[] extras) {
+        this.bits = bits;
+        this.extras = extras;
+        int count = extras.length;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        this.size = count;
+    }
+
+    public static MarketSet of(Collection<String> markets) {
+        long[] bits = new long[WORDS];
+        List<String> extras = null;
+        for (String market : markets) {
+            Integer index = INDEX.get(market);
+            if (index != null) {
+                bits[index >> 6] |= 1L << index;
+            } else if (market != null) {
+                if (extras == null) {
+                    extras = new ArrayList<>();
+                }
+                if (!extras.contains(market)) {
+                    extras.add(market);
+                }
+            }
+        }
+        if (extras != null) {
+            return new MarketSet(bits, extras.toArray(NO_EXTRAS));
+        }
+        BitsKey key = new BitsKey(bits);
+        MarketSet shared = SHARED.get(key);
+        if (shared != null) {
+            return shared;
+        }
+        MarketSet created = new MarketSet(bits, NO_EXTRAS);
+        if (SHARED.size() < MAX_SHARED) {
+            MarketSet raced = SHARED.putIfAbsent(key, created);
+            return raced != null ? raced : created;
+        }
+        return created;
+    }
+
+    /**
+     * Rebuilds a set from {@link #dictionaryBits()} and {@link #unknownCodes()}.
+     */
+    public static MarketSet fromDictionaryBits(long[] bits, Collection<String> unknownCodes) {
+        List<String> markets = new ArrayList<>(unknownCodes);
+        for (int word = 0; word < Math.min(WORDS, bits.length); word++) {
+            long value = bits[word];
+            while (value != 0) {
+                markets.add(CODES[word * 64 + Long.numberOfTrailingZeros(value)]);
+                value &= value - 1;
+            }
+        }
+        return of(markets);
+    }
+
+    /**
+     * Copy of the bitset over the market dictionary, for compact binary storage.
+     */
+    public long[] dictionaryBits() {
+        return bits.clone();
+    }
+
+    public List<String> unknownCodes() {
+        return List.of(extras);
+    }
+
+    public boolean isAvailableIn(String market) {
+        Integer index = INDEX.get(market);
+        if (index != null) {
+            return (bits[index >> 6] & (1L << index)) != 0;
+        }
+        return market != null && Arrays.asList(extras).contains(market);
+    }
+
+    @Override
+    public boolean contains(Object market) {
+        return market instanceof String code && isAvailableIn(code);
+    }
+
+    /**
+     * Codes in dictionary order, then any unknown codes. Linear in the index; iterate instead.
+     */
+    @Override
+    public String get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException(position);
+        }
+        int remaining = position;
+        for (int word = 0; word < WORDS; word++) {
+            int count = Long.bitCount(bits[word]);
+            if (remaining < count) {
+                long value = bits[word];
+                for (int skip = 0; skip < remaining; skip++) {
+                    value &= value - 1;
+                }
+                return CODES[word * 64 + Long.numberOfTrailingZeros(value)];
+            }
+            remaining -= count;
+        }
+        return extras[remaining];
+    }
+
+    /**
+     * Walks the bits directly, like {@link Serializer}, so iterating, {@code hashCode} and
+     * {@code toString} stay linear in the size instead of calling {@link #get(int)} per element.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+            private int word;
+            private long value = bits[0];
+            private int extra;
+
+            @Override
+            public boolean hasNext() {
+                while (value == 0 && word < WORDS - 1) {
+                    value = bits[++word];
+                }
+                return value != 0 || extra < extras.length;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (value != 0) {
+                    String code = CODES[word * 64 + Long.numberOfTrailingZeros(value)];
+                    value &= value - 1;
+                    return code;
+                }
+                return extras[extra++];
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // AbstractList compares through listIterator(), which goes through get(int)
+    @Override
+    public boolean equals(Object other) {
+        if (other == this) {
+            return true;
+        }
+        if (other instanceof MarketSet markets) {
+            return Arrays.equals(bits, markets.bits) && Arrays.equals(extras, markets.extras);
+        }
+        if (!(other instanceof List<?> list) || list.size() != size) {
+            return false;
+        }
+        Iterator<?> theirs = list.iterator();
+        for (String market : this) {
+            if (!market.equals(theirs.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    private record BitsKey(long[] bits) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof BitsKey key && Arrays.equals(bits, key.bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(bits);
+        }
+    }
+
+    public static class Serializer extends JsonSerializer<MarketSet> {
+        @Override
+        public void serialize(MarketSet markets, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartArray(markets, markets.size());
+            for (int word = 0; word < WORDS; word++) {
+                long value = markets.bits[word];
+                while (value != 0) {
+                    generator.writeString(CODES[word * 64 + Long.numberOfTrailingZeros(value)]);
+                    value &= value - 1;
+                }
+            }
+            for (String extra : markets.extras) {
+                generator.writeString(extra);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    public static class Deserializer extends JsonDeserializer<MarketSet> {
+        @Override
+        public MarketSet deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                return (MarketSet) context.handleUnexpectedToken(MarketSet.class, parser);
+            }
+            List<String> markets = new ArrayList<>(CODES.length);
+            for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                markets.add(parser.getValueAsString());
+            }
+            return of(markets);
+        }
+    }
+}
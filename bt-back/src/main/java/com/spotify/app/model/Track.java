@@ -45,8 +45,15 @@ public class Track {
     private Album album;
 
     @JsonProperty("available_markets")
-    private List<String> availableMarkets;
+    private MarketSet availableMarkets;
 
     @JsonProperty("disc_number")
     private Integer discNumber;
+
+    /**
+     * True when Spotify listed no markets, which it does when the request was already market-specific.
+     */
+    public boolean isAvailableIn(String market) {
+        return availableMarkets == null || availableMarkets.isAvailableIn(market);
+    }
 }
\ No newline at end of file
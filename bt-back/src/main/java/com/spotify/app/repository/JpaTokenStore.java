@@ -0,0 +1,38 @@
+package com.spotify.app.repository;
+
+import com.spotify.app.model.SpotifyToken;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+@ConditionalOnProperty(prefix = "token.write-behind", name = "enabled", havingValue = "false", matchIfMissing = true)
+@RequiredArgsConstructor
+public class JpaTokenStore implements TokenStore {
+
+    private final TokenRepository tokenRepository;
+
+    @Override
+    public Optional<SpotifyToken> find(String userId) {
+        return tokenRepository.findByUserId(userId);
+    }
+
+    @Override
+    @Transactional
+    public SpotifyToken save(SpotifyToken token) {
+        // Reuse the existing row so user_id stays unique without a delete and re-insert
+        if (token.getId() == null) {
+            tokenRepository.findByUserId(token.getUserId()).ifPresent(existing -> token.setId(existing.getId()));
+        }
+        return tokenRepository.save(token);
+    }
+
+    @Override
+    @Transactional
+    public void delete(String userId) {
+        tokenRepository.deleteByUserId(userId);
+    }
+}
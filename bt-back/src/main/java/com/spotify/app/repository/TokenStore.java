@@ -0,0 +1,21 @@
+package com.spotify.app.repository;
+
+import com.spotify.app.model.SpotifyToken;
+
+import java.util.Optional;
+
+/**
+ * Where {@code TokenService} keeps tokens. {@link JpaTokenStore} writes through to the database on
+ * every save; {@link WriteBehindTokenStore} keeps tokens in memory and persists them in batches.
+ */
+public interface TokenStore {
+
+    Optional<SpotifyToken> find(String userId);
+
+    /**
+     * Saves the token, replacing any existing token for the same user.
+     */
+    SpotifyToken save(SpotifyToken token);
+
+    void delete(String userId);
+}
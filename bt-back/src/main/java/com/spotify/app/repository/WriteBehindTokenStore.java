@@ -0,0 +1,367 @@
+package com.spotify.app.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotify.app.config.TokenWriteBehindConfig;
+import com.spotify.app.model.SpotifyToken;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the authoritative tokens in memory and persists changes behind the request thread.
+ * Dirty tokens are written in coalesced JDBC batches on a timer or once {@code batch-size} users
+ * are dirty, so a refresh storm becomes a handful of batched MERGEs instead of one JPA save per
+ * request. Every change is appended to a local journal and fsynced before it is acknowledged;
+ * saves arriving together share one fsync. Each flush rotates the journal to a numbered segment
+ * and deletes the segments once their tokens are written, so the journal stays small under steady
+ * refresh traffic; whatever segments remain are replayed on startup after a crash. The journal
+ * holds tokens in plain text, so it is readable by its owner only. Callers always get copies: the
+ * stored tokens are never mutated in place, so a flush cannot see half of a refresh.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "token.write-behind", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class WriteBehindTokenStore implements TokenStore {
+
+    private static final String MERGE_SQL = "MERGE INTO spotify_tokens "
+            + "(user_id, access_token, refresh_token, token_type, expires_in, created_at, expires_at, scope) "
+            + "KEY (user_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_SQL = "DELETE FROM spotify_tokens WHERE user_id = ?";
+
+    private final TokenRepository tokenRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TokenWriteBehindConfig config;
+
+    private final Map<String, SpotifyToken> tokens = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final Object journalLock = new Object();
+    private final Object syncLock = new Object();
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "token-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Path journalPath;
+    private FileChannel journal;
+    private long appended;      // Journal entries written, under journalLock
+    private long synced;        // Entries known to be on disk, under syncLock
+    private long segment;       // Last rotated segment, under journalLock
+    private long deletedUpTo;   // Segments already deleted, under flushLock
+
+    @PostConstruct
+    void start() throws IOException {
+        journalPath = Path.of(config.getJournal());
+        if (journalPath.getParent() != null) {
+            Files.createDirectories(journalPath.getParent());
+        }
+        List<Long> segments = rotatedSegments();
+        int replayed = 0;
+        for (long rotated : segments) {
+            replayed += replay(segmentPath(rotated));
+        }
+        replayed += replay(journalPath);
+        if (!segments.isEmpty()) {
+            deletedUpTo = segments.get(0) - 1;
+            segment = segments.get(segments.size() - 1);
+        }
+        journal = openJournal();
+        if (replayed > 0) {
+            log.info("Replayed {} unflushed token changes from {}", replayed, journalPath);
+            flush();
+        }
+
+        long interval = config.getFlushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Optional<SpotifyToken> find(String userId) {
+        SpotifyToken token = tokens.get(userId);
+        if (token != null) {
+            return Optional.of(copy(token));
+        }
+        Optional<SpotifyToken> stored = tokenRepository.findByUserId(userId);
+        stored.ifPresent(found -> tokens.putIfAbsent(userId, copy(found)));
+        return stored.map(found -> copy(tokens.getOrDefault(userId, found)));
+    }
+
+    @Override
+    public SpotifyToken save(SpotifyToken saved) {
+        SpotifyToken token = copy(saved);
+        if (token.getCreatedAt() == null) {
+            token.setCreatedAt(LocalDateTime.now());
+        }
+        if (token.getExpiresAt() == null && token.getExpiresIn() != null) {
+            token.setExpiresAt(token.getCreatedAt().plusSeconds(token.getExpiresIn()));
+        }
+
+        long entry;
+        synchronized (journalLock) {
+            entry = append("put", token.getUserId(), token);
+            tokens.put(token.getUserId(), token);
+            dirty.add(token.getUserId());
+        }
+        sync(entry);
+        if (dirty.size() >= config.getBatchSize()) {
+            flusher.execute(this::flushQuietly);
+        }
+        return copy(token);
+    }
+
+    @Override
+    public void delete(String userId) {
+        // Under the flush lock so an in-flight batch cannot write the token back after the delete
+        synchronized (flushLock) {
+            long entry;
+            synchronized (journalLock) {
+                entry = append("delete", userId, null);
+                tokens.remove(userId);
+                dirty.remove(userId);
+            }
+            sync(entry);
+            jdbcTemplate.update(DELETE_SQL, userId);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws IOException {
+        flusher.shutdown();
+        flush();
+        journal.close();
+    }
+
+    /**
+     * Writes every dirty token in batches. The journal is rotated along with the dirty snapshot,
+     * and the rotated segments are deleted once the batch is written. Tokens changed meanwhile stay
+     * dirty and in the live journal until the next flush; on failure the whole snapshot is marked
+     * dirty again and its segments are kept until a later flush succeeds.
+     */
+    void flush() {
+        synchronized (flushLock) {
+            List<String> userIds;
+            long upTo;
+            synchronized (syncLock) {
+                synchronized (journalLock) {
+                    rotate();
+                    upTo = segment;
+                    userIds = new ArrayList<>(dirty);
+                    dirty.removeAll(userIds);
+                }
+            }
+            if (!userIds.isEmpty()) {
+                List<SpotifyToken> batch = userIds.stream()
+                        .map(tokens::get)
+                        .filter(Objects::nonNull)
+                        .toList();
+                try {
+                    jdbcTemplate.batchUpdate(MERGE_SQL, batch, config.getBatchSize(), (ps, token) -> {
+                        ps.setString(1, token.getUserId());
+                        ps.setString(2, token.getAccessToken());
+                        ps.setString(3, token.getRefreshToken());
+                        ps.setString(4, token.getTokenType());
+                        ps.setObject(5, token.getExpiresIn(), Types.INTEGER);
+                        ps.setTimestamp(6, token.getCreatedAt() != null ? Timestamp.valueOf(token.getCreatedAt()) : null);
+                        ps.setTimestamp(7, token.getExpiresAt() != null ? Timestamp.valueOf(token.getExpiresAt()) : null);
+                        ps.setString(8, token.getScope());
+                    });
+                    log.debug("Flushed {} tokens", batch.size());
+                } catch (DataAccessException e) {
+                    dirty.addAll(userIds);
+                    throw e;
+                }
+            }
+            deleteSegments(upTo);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Token flush failed, {} tokens stay dirty: {}", dirty.size(), e.getMessage());
+        }
+    }
+
+    // Returns the entry's number, to be passed to sync before the change is acknowledged
+    private long append(String op, String userId, SpotifyToken token) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("op", op);
+        entry.put("userId", userId);
+        if (token != null) {
+            entry.put("token", token);
+        }
+        try {
+            byte[] line = (objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                journal.write(buffer);
+            }
+            return ++appended;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to journal token change for user " + userId, e);
+        }
+    }
+
+    /**
+     * Group commit: one fsync covers every entry written before it started, so saves waiting
+     * behind it usually find their entry already on disk.
+     */
+    private void sync(long entry) {
+        synchronized (syncLock) {
+            if (synced >= entry) {
+                return;
+            }
+            long upTo;
+            synchronized (journalLock) {
+                upTo = appended;
+            }
+            try {
+                journal.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to sync the token journal", e);
+            }
+            synced = upTo;
+        }
+    }
+
+    // Under syncLock and journalLock. Moves the live journal aside as the next segment
+    private void rotate() {
+        try {
+            if (journal.size() == 0) {
+                return;
+            }
+            journal.force(false);
+            journal.close();
+            try {
+                Files.move(journalPath, segmentPath(segment + 1));
+                segment++;
+            } finally {
+                journal = openJournal();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to rotate the token journal", e);
+        }
+        synced = appended;
+    }
+
+    private void deleteSegments(long upTo) {
+        try {
+            while (deletedUpTo < upTo) {
+                Files.deleteIfExists(segmentPath(deletedUpTo + 1));
+                deletedUpTo++;
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete flushed token journal segment: {}", e.getMessage());
+        }
+    }
+
+    private FileChannel openJournal() throws IOException {
+        restrictToOwner(journalPath);
+        return FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long number) {
+        return journalPath.resolveSibling(journalPath.getFileName() + "." + number);
+    }
+
+    private List<Long> rotatedSegments() throws IOException {
+        String prefix = journalPath.getFileName() + ".";
+        Path directory = journalPath.toAbsolutePath().getParent();
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.length() > prefix.length()
+                            && name.substring(prefix.length()).chars().allMatch(Character::isDigit))
+                    .map(name -> Long.parseLong(name.substring(prefix.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static SpotifyToken copy(SpotifyToken token) {
+        SpotifyToken copy = new SpotifyToken();
+        BeanUtils.copyProperties(token, copy);
+        return copy;
+    }
+
+    private static void restrictToOwner(Path journalPath) throws IOException {
+        if (!journalPath.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            return;
+        }
+        Set<PosixFilePermission> ownerOnly = PosixFilePermissions.fromString("rw-------");
+        if (Files.exists(journalPath)) {
+            Files.setPosixFilePermissions(journalPath, ownerOnly);
+        } else {
+            Files.createFile(journalPath, PosixFilePermissions.asFileAttribute(ownerOnly));
+        }
+    }
+
+    private int replay(Path journalPath) throws IOException {
+        if (!Files.exists(journalPath)) {
+            return 0;
+        }
+        int replayed = 0;
+        for (String line : Files.readAllLines(journalPath, StandardCharsets.UTF_8)) {
+            JournalEntry entry;
+            try {
+                entry = objectMapper.readValue(line, JournalEntry.class);
+            } catch (IOException e) {
+                // Torn last write from a crash; everything before it was acknowledged
+                log.warn("Ignoring unreadable token journal entry");
+                break;
+            }
+            if ("delete".equals(entry.op)) {
+                tokens.remove(entry.userId);
+                dirty.remove(entry.userId);
+                jdbcTemplate.update(DELETE_SQL, entry.userId);
+            } else if (entry.token != null) {
+                entry.token.setId(null);
+                tokens.put(entry.userId, entry.token);
+                dirty.add(entry.userId);
+            }
+            replayed++;
+        }
+        return replayed;
+    }
+
+    static class JournalEntry {
+        public String op;
+        public String userId;
+        public SpotifyToken token;
+    }
+}
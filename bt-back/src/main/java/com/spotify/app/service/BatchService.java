@@ -0,0 +1,163 @@
+package com.spotify.app.service;
+
+import com.spotify.app.config.BatchConfig;
+import com.spotify.app.model.BatchRequest;
+import com.spotify.app.model.BatchResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Runs several {@code /api} GETs for one user in a single request. The token is checked once for
+ * the whole batch, sub-requests run concurrently up to {@code batch.concurrency}, and each one gets
+ * its own status and body, so one failing album does not fail the rest. Parameters and defaults
+ * are the same as on the individual endpoints.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatchService {
+
+    private static final List<Route> ROUTES = List.of(
+            route("/api/me", (service, userId, vars, query) ->
+                    service.getCurrentUser(userId)),
+            route("/api/me/top/artists", (service, userId, vars, query) ->
+                    service.getUserTopArtists(userId, query.get("timeRange", "medium_term"), query.getInt("limit", 10))),
+            route("/api/artists/{id}", (service, userId, vars, query) ->
+                    service.getArtist(userId, vars.get("id"))),
+            route("/api/artists/{id}/albums", (service, userId, vars, query) ->
+                    service.getArtistAlbums(userId, vars.get("id"), query.get("includeGroups", null),
+                            query.get("market", null), query.getInt("limit", 20), query.getInt("offset", 0))),
+            route("/api/artists/{id}/top-tracks", (service, userId, vars, query) ->
+                    service.getArtistTopTracks(userId, vars.get("id"), query.get("market", "US"))),
+            route("/api/artists/{id}/related-artists", (service, userId, vars, query) ->
+                    service.getRelatedArtists(userId, vars.get("id"))),
+            route("/api/albums/{id}", (service, userId, vars, query) ->
+                    service.getAlbum(userId, vars.get("id"), query.get("market", null))),
+            route("/api/search", (service, userId, vars, query) -> {
+                String q = query.get("q", null);
+                if (q == null || q.trim().isEmpty()) {
+                    throw new IllegalArgumentException("Search query parameter 'q' is required");
+                }
+                return service.search(userId, q, query.get("type", "artist,album,track"),
+                        query.getInt("limit", 10), query.getInt("offset", 0));
+            }));
+
+    private final SpotifyService spotifyService;
+    private final BatchConfig batchConfig;
+    private final LogSampler logSampler;
+
+    public int getMaxRequests() {
+        return batchConfig.getMaxRequests();
+    }
+
+    public BatchResponse execute(String userId, List<BatchRequest.Item> items) {
+        String accessToken = spotifyService.resolveAccessToken(userId);
+        RequestCancellation cancellation = RequestCancellation.current();
+        List<BatchResponse.Item> responses = RequestCancellation.await(Flux.fromIterable(items)
+                .flatMapSequential(item -> Mono
+                        .fromCallable(() -> cancellation.call(
+                                () -> spotifyService.withAccessToken(accessToken, () -> run(userId, item))))
+                        .subscribeOn(Schedulers.boundedElastic()), batchConfig.getConcurrency())
+                .collectList());
+        return new BatchResponse(responses);
+    }
+
+    private BatchResponse.Item run(String userId, BatchRequest.Item item) {
+        try {
+            return new BatchResponse.Item(item.getId(), item.getPath(), 200, dispatch(userId, item.getPath()));
+        } catch (CancellationException e) {
+            throw e;
+        } catch (UpstreamException e) {
+            if (e.getStatus().is5xxServerError()) {
+                long count = logSampler.sample(e.getError() + "|" + e.getRoute());
+                if (count > 0) {
+                    log.warn("Batch request {} answered {}: {} ({} since last logged)",
+                            item.getPath(), e.getStatus().value(), e.getMessage(), count);
+                }
+            }
+            return new BatchResponse.Item(item.getId(), item.getPath(), e.getStatus().value(), e.body());
+        } catch (IllegalArgumentException e) {
+            return new BatchResponse.Item(item.getId(), item.getPath(), 400, errorBody("bad_request", e.getMessage()));
+        } catch (RuntimeException e) {
+            long count = logSampler.sample(e.getClass().getName());
+            if (count > 0) {
+                log.error("Error in batch request {} ({} since last logged)", item.getPath(), count, e);
+            }
+            return new BatchResponse.Item(item.getId(), item.getPath(), 500, errorBody("internal_error", e.getMessage()));
+        }
+    }
+
+    private Object dispatch(String userId, String path) {
+        if (path == null || !path.startsWith("/api/")) {
+            throw new IllegalArgumentException("Expected an /api path, got " + path);
+        }
+        UriComponents uri = UriComponentsBuilder.fromUriString(path).build();
+        PathContainer pathContainer = PathContainer.parsePath(uri.getPath());
+        for (Route route : ROUTES) {
+            PathPattern.PathMatchInfo match = route.pattern().matchAndExtract(pathContainer);
+            if (match != null) {
+                return route.operation().invoke(spotifyService, userId, match.getUriVariables(), new Query(uri));
+            }
+        }
+        throw new IllegalArgumentException("No batchable endpoint for " + uri.getPath());
+    }
+
+    private static Route route(String pattern, Operation operation) {
+        return new Route(PathPatternParser.defaultInstance.parse(pattern), operation);
+    }
+
+    private static Map<String, Object> errorBody(String error, String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", error);
+        errorResponse.put("message", message);
+        return errorResponse;
+    }
+
+    private record Route(PathPattern pattern, Operation operation) {
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        Object invoke(SpotifyService service, String userId, Map<String, String> vars, Query query);
+    }
+
+    /**
+     * Decoded query parameters of a sub-request path.
+     */
+    private static final class Query {
+        private final Map<String, List<String>> params;
+
+        Query(UriComponents uri) {
+            this.params = uri.getQueryParams();
+        }
+
+        String get(String name, String defaultValue) {
+            List<String> values = params.get(name);
+            if (values == null || values.isEmpty() || values.get(0) == null) {
+                return defaultValue;
+            }
+            return URLDecoder.decode(values.get(0), StandardCharsets.UTF_8);
+        }
+
+        Integer getInt(String name, int defaultValue) {
+            String value = get(name, null);
+            return value != null ? Integer.valueOf(value) : defaultValue;
+        }
+    }
+}
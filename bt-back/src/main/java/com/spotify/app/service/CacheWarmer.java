@@ -0,0 +1,100 @@
+package com.spotify.app.service;
+
+import com.spotify.app.config.CacheConfig;
+import com.spotify.app.config.WarmupConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fills the response cache with what the home page asks for right after login: the profile, the
+ * top artists for every time range, and the details of the top artists. Runs on its own threads
+ * so the OAuth callback returns without waiting; failures only mean the first screen is a miss.
+ * <p>
+ * The reads go through the cache, so they only fetch what is missing. After a code exchange that
+ * is the profile and top artists too: {@link TokenService} drops the user's cached responses before
+ * publishing the event, as the login may belong to another Spotify account.
+ */
+@Component
+@Slf4j
+public class CacheWarmer {
+
+    private static final List<String> TIME_RANGES = List.of("short_term", "medium_term", "long_term");
+
+    private final SpotifyService spotifyService;
+    private final CacheConfig cacheConfig;
+    private final WarmupConfig warmupConfig;
+    private final ExecutorService executor;
+    private final Set<String> warming = ConcurrentHashMap.newKeySet();
+
+    public CacheWarmer(SpotifyService spotifyService, CacheConfig cacheConfig, WarmupConfig warmupConfig) {
+        this.spotifyService = spotifyService;
+        this.cacheConfig = cacheConfig;
+        this.warmupConfig = warmupConfig;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(warmupConfig.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "cache-warmup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener
+    public void onTokenIssued(TokenIssuedEvent event) {
+        if (!warmupConfig.isEnabled() || !cacheConfig.isEnabled() || !warming.add(event.userId())) {
+            return;
+        }
+        try {
+            warm(event.userId()).whenComplete((ignored, error) -> {
+                warming.remove(event.userId());
+                if (error != null) {
+                    log.debug("Cache warmup for user {} incomplete: {}", event.userId(), error.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            warming.remove(event.userId());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private CompletableFuture<Void> warm(String userId) {
+        List<CompletableFuture<?>> steps = new ArrayList<>();
+        steps.add(CompletableFuture.runAsync(() -> spotifyService.getCurrentUser(userId), executor));
+        for (String timeRange : TIME_RANGES) {
+            steps.add(CompletableFuture
+                    .supplyAsync(() -> spotifyService.getUserTopArtists(userId, timeRange, warmupConfig.getTopArtistsLimit()), executor)
+                    .thenCompose(topArtists -> warmArtists(userId, topArtists)));
+        }
+        return CompletableFuture.allOf(steps.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private CompletableFuture<Void> warmArtists(String userId, Map<String, Object> topArtists) {
+        if (topArtists == null || !(topArtists.get("items") instanceof List<?> items)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // Artists repeated across time ranges are cache hits or join the in-flight fetch
+        return CompletableFuture.allOf(items.stream()
+                .limit(warmupConfig.getArtists())
+                .filter(Map.class::isInstance)
+                .map(item -> ((Map<?, ?>) item).get("id"))
+                .filter(String.class::isInstance)
+                .map(artistId -> CompletableFuture.runAsync(() -> spotifyService.getArtist(userId, (String) artistId), executor))
+                .toArray(CompletableFuture<?>[]::new));
+    }
+}
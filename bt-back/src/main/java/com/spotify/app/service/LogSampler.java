@@ -0,0 +1,62 @@
+package com.spotify.app.service;
+
+import com.spotify.app.config.ErrorLogConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides which occurrences of a repeated error get logged, so an upstream incident produces a
+ * few log lines per kind of error instead of one per request. The first {@code burst} of a kind
+ * in each window are logged, after that one in {@code sample-every}. Keys should be
+ * low-cardinality, e.g. an error code and route.
+ */
+@Component
+public class LogSampler {
+
+    private final ErrorLogConfig config;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private final LongSupplier nanoClock;
+
+    @Autowired
+    public LogSampler(ErrorLogConfig config) {
+        this(config, System::nanoTime);
+    }
+
+    LogSampler(ErrorLogConfig config, LongSupplier nanoClock) {
+        this.config = config;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * 0 if this occurrence should not be logged, otherwise how many occurrences of {@code key}
+     * (this one included) there were since the last one logged.
+     */
+    public long sample(String key) {
+        return windows.computeIfAbsent(key, ignored -> new Window()).sample(nanoClock.getAsLong());
+    }
+
+    private final class Window {
+        private long start = nanoClock.getAsLong();
+        private int logged;
+        private long unlogged;
+
+        synchronized long sample(long now) {
+            if (now - start >= config.getWindow().toNanos()) {
+                start = now;
+                logged = 0;
+            }
+            unlogged++;
+            if (logged < config.getBurst() || unlogged >= config.getSampleEvery()) {
+                logged++;
+                long count = unlogged;
+                unlogged = 0;
+                return count;
+            }
+            return 0;
+        }
+    }
+}
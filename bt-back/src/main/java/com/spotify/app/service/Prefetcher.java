@@ -0,0 +1,144 @@
+package com.spotify.app.service;
+
+import com.spotify.app.config.PrefetchConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs speculative upstream fetches on a few low-priority threads. Prefetches are spent from a
+ * token bucket whose refill rate shrinks as the upstream call rate over the last 30 seconds
+ * approaches {@code upstream-window-limit}, and stop entirely for a while after Spotify answers 429.
+ * Anything over budget or beyond the queue is dropped; a prefetch is never worth a user request.
+ */
+@Component
+@Slf4j
+public class Prefetcher {
+
+    private static final int WINDOW_SECONDS = 30;
+    private static final ThreadLocal<Boolean> PREFETCHING = ThreadLocal.withInitial(() -> false);
+
+    private final PrefetchConfig config;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLongArray callsPerSecond = new AtomicLongArray(WINDOW_SECONDS);
+    private final AtomicLongArray bucketSecond = new AtomicLongArray(WINDOW_SECONDS);
+    private final LongSupplier nanoClock;
+    private final long origin;
+
+    private volatile long pausedUntil;
+    private double tokens;
+    private long refilledAt;
+
+    @Autowired
+    public Prefetcher(PrefetchConfig config) {
+        this(config, System::nanoTime);
+    }
+
+    Prefetcher(PrefetchConfig config, LongSupplier nanoClock) {
+        this.config = config;
+        this.nanoClock = nanoClock;
+        this.origin = nanoClock.getAsLong();
+        this.refilledAt = origin;
+        this.pausedUntil = origin;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(config.getThreads(), config.getThreads(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()), runnable -> {
+                    Thread thread = new Thread(runnable, "prefetch-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+        this.tokens = config.getBurst();
+    }
+
+    /**
+     * Queues a prefetch if the budget allows it. Returns false when it was dropped.
+     */
+    public boolean submit(Runnable task) {
+        if (!config.isEnabled() || !acquire()) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                PREFETCHING.set(true);
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    log.debug("Prefetch failed: {}", e.getMessage());
+                } finally {
+                    PREFETCHING.remove();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * True on prefetch threads, so prefetched responses do not trigger further speculative pages.
+     */
+    public boolean isPrefetching() {
+        return PREFETCHING.get();
+    }
+
+    public void recordUpstreamCall() {
+        long second = TimeUnit.NANOSECONDS.toSeconds(nanoClock.getAsLong() - origin);
+        int slot = (int) (second % WINDOW_SECONDS);
+        long previous = bucketSecond.get(slot);
+        if (previous != second && bucketSecond.compareAndSet(slot, previous, second)) {
+            callsPerSecond.set(slot, 0);
+        }
+        callsPerSecond.incrementAndGet(slot);
+    }
+
+    public void recordThrottled(Duration retryAfter) {
+        Duration pause = retryAfter.compareTo(Duration.ofSeconds(WINDOW_SECONDS)) > 0
+                ? retryAfter : Duration.ofSeconds(WINDOW_SECONDS);
+        pausedUntil = nanoClock.getAsLong() + pause.toNanos();
+        log.info("Upstream rate limited, pausing prefetch for {}s", pause.toSeconds());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private synchronized boolean acquire() {
+        long now = nanoClock.getAsLong();
+        if (now - pausedUntil < 0) {
+            return false;
+        }
+        double allowed = config.getUpstreamWindowLimit() * config.getHeadroom();
+        double pressure = Math.min(1.0, windowCalls() / allowed);
+        tokens = Math.min(config.getBurst(),
+                tokens + (now - refilledAt) / 1e9 * config.getRate() * (1.0 - pressure));
+        refilledAt = now;
+        if (pressure >= 1.0 || tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    private long windowCalls() {
+        long current = TimeUnit.NANOSECONDS.toSeconds(nanoClock.getAsLong() - origin);
+        long total = 0;
+        for (int slot = 0; slot < WINDOW_SECONDS; slot++) {
+            if (current - bucketSecond.get(slot) < WINDOW_SECONDS) {
+                total += callsPerSecond.get(slot);
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,33 @@
+package com.spotify.app.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+
+/**
+ * Spotify answered 429. Passed on as 429 with Spotify's {@code Retry-After}, if it sent one.
+ */
+public class RateLimitedException extends UpstreamException {
+
+    private final Duration retryAfter;
+
+    public RateLimitedException(String message, UpstreamRoute route, Duration retryAfter, String upstreamBody) {
+        super(HttpStatus.TOO_MANY_REQUESTS, "rate_limited", message, route, 429, upstreamBody);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    static Duration retryAfter(WebClientResponseException e) {
+        String header = e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        try {
+            return header != null ? Duration.ofSeconds(Long.parseLong(header.trim())) : Duration.ZERO;
+        } catch (NumberFormatException ignored) {
+            return Duration.ZERO;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.spotify.app.service;
+
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Cancels the waits of one API request without interrupting the thread running it. Only waits made
+ * through {@link #await} end early; everything else the request does, like refreshing and saving a
+ * token, runs to completion. An interrupt would reach those too: it closes a {@code FileChannel}
+ * for good and can leave a JDBC connection broken.
+ */
+public final class RequestCancellation {
+
+    private static final ThreadLocal<RequestCancellation> CURRENT = new ThreadLocal<>();
+
+    private final Set<CompletableFuture<?>> waits = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    public void cancel() {
+        cancelled = true;
+        waits.forEach(wait -> wait.cancel(false));
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Runs {@code work} on this thread with this as the current request's cancellation.
+     */
+    public <T> T call(Supplier<T> work) {
+        RequestCancellation outer = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return work.get();
+        } finally {
+            if (outer != null) {
+                CURRENT.set(outer);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * The cancellation of the request running on this thread, or a fresh one that is never
+     * cancelled, so work handed to another thread can carry it along either way.
+     */
+    public static RequestCancellation current() {
+        RequestCancellation current = CURRENT.get();
+        return current != null ? current : new RequestCancellation();
+    }
+
+    public static boolean isCurrentCancelled() {
+        RequestCancellation current = CURRENT.get();
+        return current != null && current.cancelled;
+    }
+
+    /**
+     * Subscribes and waits like {@link Mono#block()}; cancelling the current request disposes the
+     * subscription and throws {@link CancellationException} here.
+     */
+    public static <T> T await(Mono<T> mono) {
+        return await(mono.toFuture());
+    }
+
+    /**
+     * Waits for {@code future}, which is cancelled if the current request is. Pass a copy of a
+     * future other requests share.
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        RequestCancellation current = CURRENT.get();
+        if (current != null) {
+            current.waits.add(future);
+            if (current.cancelled) {
+                future.cancel(false);
+            }
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            // Shutdown, or a Reactor worker whose task was disposed; our own cancel never interrupts
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw Exceptions.propagate(e.getCause());
+        } finally {
+            if (current != null) {
+                current.waits.remove(future);
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.spotify.app.service;
+
+import com.spotify.app.config.HedgeConfig;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sends a second copy of a slow upstream GET and keeps whichever succeeds first; the other one is
+ * cancelled. A request is hedged once it has run longer than the route's recent p95, and only while
+ * the budget allows it: every request earns {@code budget-ratio} of a hedge, so during an outage,
+ * when everything is slow, extra traffic stays capped at that share instead of doubling load. A
+ * hedge also needs its own {@link UpstreamLimiter} permit out of the prefetch share, so a route
+ * near its concurrency limit is not hedged at all.
+ */
+@Component
+public class RequestHedger {
+
+    private final HedgeConfig config;
+    private final UpstreamLimiter upstreamLimiter;
+    private final Map<UpstreamRoute, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private final AtomicLong hedgesSent = new AtomicLong();
+    private double budget;
+
+    public RequestHedger(HedgeConfig config, UpstreamLimiter upstreamLimiter) {
+        this.config = config;
+        this.upstreamLimiter = upstreamLimiter;
+    }
+
+    /**
+     * Wraps a cold request so it may be subscribed a second time. Errors are not hedged: once the
+     * first attempt fails, a hedge not yet sent is dropped and a 404 or 429 is returned as is. A
+     * failing hedge never hides a first attempt still in flight.
+     */
+    public <T> Mono<T> hedge(UpstreamRoute route, Mono<T> request) {
+        if (!config.isEnabled() || !config.getRoutes().contains(route)) {
+            return request;
+        }
+        LatencyWindow window = latencies.computeIfAbsent(route, ignored -> new LatencyWindow(config.getWindow()));
+        Mono<T> timed = Mono.defer(() -> {
+            long start = System.nanoTime();
+            return request.doOnSuccess(value -> window.record(System.nanoTime() - start));
+        });
+
+        deposit();
+        Duration threshold = window.threshold(config.getPercentile(), config.getMinSamples());
+        if (threshold == null) {
+            return timed;
+        }
+        Duration delay = threshold.compareTo(config.getMinDelay()) < 0 ? config.getMinDelay() : threshold;
+        return Mono.defer(() -> {
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Sinks.One<Boolean> ended = Sinks.one();
+            Mono<T> primary = timed
+                    .doOnError(e -> {
+                        failure.set(e);
+                        ended.tryEmitValue(true);
+                    })
+                    .doOnSuccess(value -> ended.tryEmitValue(true));
+            Mono<T> backup = Mono.delay(delay)
+                    .takeUntilOther(ended.asMono())
+                    .flatMap(tick -> send(route, timed));
+            // Both attempts failed or came back empty: answer as the first attempt did
+            return Mono.firstWithValue(primary, backup)
+                    .onErrorResume(e -> failure.get() != null ? Mono.<T>error(failure.get()) : Mono.<T>empty());
+        });
+    }
+
+    public long hedgesSent() {
+        return hedgesSent.get();
+    }
+
+    private <T> Mono<T> send(UpstreamRoute route, Mono<T> timed) {
+        UpstreamLimiter.Permit permit = upstreamLimiter.tryAcquire(route, true);
+        if (permit == null) {
+            return Mono.empty();
+        }
+        if (!withdraw()) {
+            permit.abandon();
+            return Mono.empty();
+        }
+        hedgesSent.incrementAndGet();
+        return timed
+                .doOnSuccess(value -> permit.release(false))
+                .doOnError(e -> permit.release(overloaded(e)))
+                .doFinally(signal -> permit.abandon());
+    }
+
+    // Same outcomes SpotifyService reports as dropped for the first attempt
+    private static boolean overloaded(Throwable e) {
+        if (e instanceof WebClientResponseException response) {
+            return response.getStatusCode().value() == 429 || response.getStatusCode().is5xxServerError();
+        }
+        return e instanceof WebClientRequestException || Exceptions.unwrap(e) instanceof TimeoutException;
+    }
+
+    private synchronized void deposit() {
+        budget = Math.min(config.getMaxBurst(), budget + config.getBudgetRatio());
+    }
+
+    private synchronized boolean withdraw() {
+        if (budget < 1) {
+            return false;
+        }
+        budget--;
+        return true;
+    }
+
+    /**
+     * Ring of the most recent latencies for one route. The percentile is recomputed every few
+     * samples rather than on every request.
+     */
+    private static final class LatencyWindow {
+        private static final int RECOMPUTE_EVERY = 32;
+
+        private final long[] samples;
+        private long count;
+        private volatile long thresholdNanos = -1;
+
+        LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        synchronized void record(long nanos) {
+            samples[(int) (count % samples.length)] = nanos;
+            count++;
+            if (count % RECOMPUTE_EVERY == 0) {
+                thresholdNanos = -1;
+            }
+        }
+
+        Duration threshold(double percentile, int minSamples) {
+            long cached = thresholdNanos;
+            if (cached >= 0) {
+                return Duration.ofNanos(cached);
+            }
+            long[] sorted;
+            synchronized (this) {
+                if (count < Math.max(1, minSamples)) {
+                    return null;
+                }
+                sorted = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+            }
+            Arrays.sort(sorted);
+            long value = sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+            thresholdNanos = value;
+            return Duration.ofNanos(value);
+        }
+    }
+}
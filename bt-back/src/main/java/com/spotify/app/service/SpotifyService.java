@@ -1,229 +1,386 @@
 package com.spotify.app.service;
 
+import com.spotify.app.cache.NegativeCache;
+import com.spotify.app.cache.ResponseCache;
+import com.spotify.app.catalog.CatalogStore;
+import com.spotify.app.config.CacheConfig;
+import com.spotify.app.config.PrefetchConfig;
 import com.spotify.app.config.SpotifyConfig;
 import com.spotify.app.model.Album;
 import com.spotify.app.model.Artist;
 import com.spotify.app.model.SpotifyToken;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.UriBuilder;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
 
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SpotifyService {
 
+    // What the artist page asks for, so a prefetched albums page is a cache hit for it
+    private static final String ARTIST_PAGE_INCLUDE_GROUPS = "album,single";
+    private static final String ARTIST_PAGE_MARKET = "US";
+    private static final int ARTIST_PAGE_LIMIT = 10;
+    private static final int SPOTIFY_DEFAULT_LIMIT = 20;
+    private static final ThreadLocal<String> RESOLVED_TOKEN = new ThreadLocal<>();
+
     private final SpotifyConfig spotifyConfig;
     private final TokenService tokenService;
     private final WebClient.Builder webClientBuilder;
+    private final CacheConfig cacheConfig;
+    private final ResponseCache responseCache;
+    private final PrefetchConfig prefetchConfig;
+    private final Prefetcher prefetcher;
+    private final RequestHedger requestHedger;
+    private final CatalogStore catalogStore;
+    private final NegativeCache negativeCache;
+    private final UpstreamLimiter upstreamLimiter;
 
-    private WebClient createAuthorizedWebClient(String accessToken) {
-        return webClientBuilder
-                .baseUrl(spotifyConfig.getApiUrl())
-                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
-                .build();
-    }
+    private volatile WebClient webClient;
 
     public Map<String, Object> getCurrentUser(String userId) {
-        Optional<SpotifyToken> tokenOpt = tokenService.getValidToken(userId);
-        if (tokenOpt.isEmpty()) {
-            throw new RuntimeException("No valid token found for user");
-        }
+        return fetch(userId, UpstreamRoute.CURRENT_USER, Map.class,
+                uriBuilder -> uriBuilder.path("/me").build(),
+                "Failed to fetch current user");
+    }
 
-        WebClient webClient = createAuthorizedWebClient(tokenOpt.get().getAccessToken());
+    public Map<String, Object> getArtistTopTracks(String userId, String artistId, String market) {
+        String resolvedMarket = market != null ? market : "US";
+        return fetch(userId, UpstreamRoute.ARTIST_TOP_TRACKS, Map.class,
+                uriBuilder -> uriBuilder
+                        .path("/artists/{id}/top-tracks")
+                        .queryParam("market", resolvedMarket)
+                        .build(artistId),
+                "Failed to fetch artist top tracks", artistId, resolvedMarket);
+    }
 
-        try {
-            return webClient
-                    .get()
-                    .uri("/me")
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .block();
-        } catch (WebClientResponseException e) {
-            log.error("Error fetching current user: {}", e.getMessage());
-            throw new RuntimeException("Failed to fetch current user", e);
-        }
+    public Map<String, Object> getUserTopArtists(String userId, String timeRange, Integer limit) {
+        log.info("Fetching top artists for user {} with timeRange {} and limit {}",
+                userId, timeRange, limit);
+
+        Map<String, Object> response = fetch(userId, UpstreamRoute.TOP_ARTISTS, Map.class,
+                uriBuilder -> uriBuilder
+                        .path("/me/top/artists")
+                        .queryParam("time_range", timeRange)
+                        .queryParam("limit", limit)
+                        .build(),
+                "Failed to fetch top artists", timeRange, limit);
+
+        log.debug("Received top artists response: {}", response);
+        return response;
     }
 
-    public Map<String, Object> getArtistTopTracks(String userId, String artistId, String market) {
-        Optional<SpotifyToken> tokenOpt = tokenService.getValidToken(userId);
-        if (tokenOpt.isEmpty()) {
-            throw new RuntimeException("No valid token found for user");
-        }
+    public Artist getArtist(String userId, String artistId) {
+        Artist artist = fetch(userId, UpstreamRoute.ARTIST, Artist.class,
+                uriBuilder -> uriBuilder.path("/artists/{id}").build(artistId),
+                "Failed to fetch artist", artistId);
 
-        WebClient webClient = createAuthorizedWebClient(tokenOpt.get().getAccessToken());
+        prefetchArtistPage(userId, artistId);
+        return artist;
+    }
 
-        try {
-            return webClient
-                    .get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/artists/{id}/top-tracks")
-                            .queryParam("market", market != null ? market : "US")
-                            .build(artistId))
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .block();
-        } catch (WebClientResponseException e) {
-            log.error("Error fetching top tracks for artist {}: {}", artistId, e.getMessage());
-            throw new RuntimeException("Failed to fetch artist top tracks", e);
-        }
+    public Album getAlbum(String userId, String albumId) {
+        return fetch(userId, UpstreamRoute.ALBUM, Album.class,
+                uriBuilder -> uriBuilder.path("/albums/{id}").build(albumId),
+                "Failed to fetch album", albumId);
     }
 
-    public Map<String, Object> getUserTopArtists(String userId, String timeRange, Integer limit) {
-        Optional<SpotifyToken> tokenOpt = tokenService.getValidToken(userId);
-        if (tokenOpt.isEmpty()) {
-            throw new RuntimeException("No valid token found for user: " + userId);
-        }
+    /**
+     * The album with its track list narrowed to tracks available in {@code market}, or as is when
+     * no market is given.
+     */
+    public Album getAlbum(String userId, String albumId, String market) {
+        Album album = getAlbum(userId, albumId);
+        return market != null && album != null ? availableIn(album, market) : album;
+    }
 
-        WebClient webClient = createAuthorizedWebClient(tokenOpt.get().getAccessToken());
+    public Map<String, Object> search(String userId, String query, String type, Integer limit, Integer offset) {
+        String resolvedType = type != null ? type : "artist,album,track";
+        Map<String, Object> results = fetch(userId, UpstreamRoute.SEARCH, Map.class,
+                uriBuilder -> uriBuilder
+                        .path("/search")
+                        .queryParam("q", query)
+                        .queryParam("type", resolvedType)
+                        .queryParamIfPresent("limit", Optional.ofNullable(limit))
+                        .queryParamIfPresent("offset", Optional.ofNullable(offset))
+                        .build(),
+                "Failed to perform search", query, resolvedType, limit, offset);
 
-        try {
-            log.info("Fetching top artists for user {} with timeRange {} and limit {}",
-                    userId, timeRange, limit);
+        prefetchNextSearchPage(userId, query, type, limit, offset, results);
+        return results;
+    }
 
-            Map<String, Object> response = webClient
-                    .get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/me/top/artists")
-                            .queryParam("time_range", timeRange)
-                            .queryParam("limit", limit)
-                            .build())
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .block();
+    public Map<String, Object> getArtistAlbums(String userId, String artistId, String includeGroups, String market, Integer limit, Integer offset) {
+        Map<String, Object> albums = fetch(userId, UpstreamRoute.ARTIST_ALBUMS, Map.class,
+                uriBuilder -> uriBuilder
+                        .path("/artists/{id}/albums")
+                        .queryParamIfPresent("include_groups", Optional.ofNullable(includeGroups))
+                        .queryParamIfPresent("market", Optional.ofNullable(market))
+                        .queryParamIfPresent("limit", Optional.ofNullable(limit))
+                        .queryParamIfPresent("offset", Optional.ofNullable(offset))
+                        .build(artistId),
+                "Failed to fetch artist albums", artistId, includeGroups, market, limit, offset);
 
-            log.debug("Received top artists response: {}", response);
-            return response;
+        prefetchAlbums(userId, albums);
+        return albums;
+    }
 
-        } catch (WebClientResponseException e) {
-            log.error("Error fetching top artists: Status={}, Response={}",
-                    e.getStatusCode(), e.getResponseBodyAsString());
-            throw new RuntimeException("Failed to fetch top artists: " + e.getStatusText(), e);
-        } catch (Exception e) {
-            log.error("Unexpected error fetching top artists", e);
-            throw new RuntimeException("Unexpected error fetching top artists", e);
-        }
+    public Map<String, Object> getRelatedArtists(String userId, String artistId) {
+        return fetch(userId, UpstreamRoute.RELATED_ARTISTS, Map.class,
+                uriBuilder -> uriBuilder.path("/artists/{id}/related-artists").build(artistId),
+                "Failed to fetch related artists", artistId);
     }
 
-    public Artist getArtist(String userId, String artistId) {
-        Optional<SpotifyToken> tokenOpt = tokenService.getValidToken(userId);
-        if (tokenOpt.isEmpty()) {
-            throw new RuntimeException("No valid token found for user");
+    /**
+     * Token check, cache lookup and upstream call shared by every endpoint. The token is checked
+     * even on a cache hit so callers without a session keep getting an error. Artists and albums
+     * live in the off-heap catalog store when it is enabled. Malformed and known-missing ids are
+     * rejected before any of that, and upstream calls wait for nothing: a route at its concurrency
+     * limit answers 503 straight away. Each attempt gives up after spotify.api-timeout (504), so a
+     * stalled connection frees its permit long before the request itself times out.
+     */
+    private <T> T fetch(String userId, UpstreamRoute route, Class<T> type, Function<UriBuilder, URI> uri,
+                        String failureMessage, Object... params) {
+        if (route.getIdType() != null) {
+            checkId(route.getIdType(), (String) params[0]);
         }
+        String accessToken = accessToken(userId);
+        Supplier<T> upstream = () -> {
+            Mono<T> request = Mono.defer(() -> {
+                prefetcher.recordUpstreamCall();
+                return webClient()
+                        .get()
+                        .uri(uri)
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                        .retrieve()
+                        .bodyToMono(type)
+                        .timeout(spotifyConfig.getApiTimeout());
+            });
+            UpstreamLimiter.Permit permit = upstreamLimiter.acquire(route, prefetcher.isPrefetching());
+            try {
+                T result = RequestCancellation.await(requestHedger.hedge(route, request));
+                permit.release(false);
+                return result;
+            } catch (WebClientResponseException e) {
+                int status = e.getStatusCode().value();
+                permit.release(status == 429 || e.getStatusCode().is5xxServerError());
+                if (status == 429) {
+                    prefetcher.recordThrottled(RateLimitedException.retryAfter(e));
+                }
+                // Only the entity's own route: a 404 from e.g. related-artists says nothing about the artist.
+                // Those routes take no other parameter, so a 400 there is Spotify rejecting the id itself
+                if ((status == 404 || status == 400) && (route == UpstreamRoute.ARTIST || route == UpstreamRoute.ALBUM)) {
+                    negativeCache.recordMissing(route.getIdType(), (String) params[0]);
+                    throw new UnknownIdException(route.getIdType(), (String) params[0]);
+                }
+                throw UpstreamException.from(route, failureMessage, e);
+            } catch (RuntimeException e) {
+                if (e instanceof WebClientRequestException || Exceptions.unwrap(e) instanceof TimeoutException) {
+                    permit.release(true);
+                    throw UpstreamException.unanswered(route, failureMessage, e);
+                }
+                throw e;
+            } finally {
+                permit.abandon();
+            }
+        };
 
-        WebClient webClient = createAuthorizedWebClient(tokenOpt.get().getAccessToken());
+        String key = cacheKey(route, userId, params);
+        if (catalogStore.stores(route)) {
+            T stored = catalogStore.get(type, (String) params[0]);
+            if (stored != null) {
+                return stored;
+            }
+            return responseCache.share(key, () -> catalogStore.put(upstream.get(), ttl(route)));
+        }
+        return responseCache.get(key, ttl(route), upstream);
+    }
 
-        try {
-            return webClient
-                    .get()
-                    .uri("/artists/{id}", artistId)
-                    .retrieve()
-                    .bodyToMono(Artist.class)
-                    .block();
-        } catch (WebClientResponseException e) {
-            log.error("Error fetching artist {}: {}", artistId, e.getMessage());
-            throw new RuntimeException("Failed to fetch artist", e);
+    private void checkId(String type, String id) {
+        if (!isSpotifyId(id)) {
+            throw new IllegalArgumentException("Invalid " + type + " id: " + id);
+        }
+        if (negativeCache.isKnownMissing(type, id)) {
+            throw new UnknownIdException(type, id);
         }
     }
 
-    public Album getAlbum(String userId, String albumId) {
-        Optional<SpotifyToken> tokenOpt = tokenService.getValidToken(userId);
-        if (tokenOpt.isEmpty()) {
-            throw new RuntimeException("No valid token found for user");
+    // Spotify ids are 22 base62 characters
+    private static boolean isSpotifyId(String id) {
+        if (id == null || id.length() != 22) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (!(c >= '0' && c <= '9') && !(c >= 'A' && c <= 'Z') && !(c >= 'a' && c <= 'z')) {
+                return false;
+            }
         }
+        return true;
+    }
 
-        WebClient webClient = createAuthorizedWebClient(tokenOpt.get().getAccessToken());
+    /**
+     * Looks up the user's access token, failing like any endpoint would without one.
+     */
+    public String resolveAccessToken(String userId) {
+        return accessToken(userId);
+    }
 
+    /**
+     * Runs {@code work} on this thread with an access token resolved up front, so the calls made
+     * inside it skip the per-call token lookup. Used by batches, which check the token once.
+     */
+    public <T> T withAccessToken(String accessToken, Supplier<T> work) {
+        RESOLVED_TOKEN.set(accessToken);
         try {
-            return webClient
-                    .get()
-                    .uri("/albums/{id}", albumId)
-                    .retrieve()
-                    .bodyToMono(Album.class)
-                    .block();
-        } catch (WebClientResponseException e) {
-            log.error("Error fetching album {}: {}", albumId, e.getMessage());
-            throw new RuntimeException("Failed to fetch album", e);
+            return work.get();
+        } finally {
+            RESOLVED_TOKEN.remove();
         }
     }
 
-    public Map<String, Object> search(String userId, String query, String type, Integer limit, Integer offset) {
+    private String accessToken(String userId) {
+        String resolved = RESOLVED_TOKEN.get();
+        if (resolved != null) {
+            return resolved;
+        }
         Optional<SpotifyToken> tokenOpt = tokenService.getValidToken(userId);
         if (tokenOpt.isEmpty()) {
-            throw new RuntimeException("No valid token found for user");
+            throw UnauthorizedException.NO_TOKEN;
         }
+        return tokenOpt.get().getAccessToken();
+    }
 
-        WebClient webClient = createAuthorizedWebClient(tokenOpt.get().getAccessToken());
+    private WebClient webClient() {
+        WebClient client = webClient;
+        if (client == null) {
+            client = webClientBuilder.baseUrl(spotifyConfig.getApiUrl()).build();
+            webClient = client;
+        }
+        return client;
+    }
 
-        try {
-            return webClient
-                    .get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/search")
-                            .queryParam("q", query)
-                            .queryParam("type", type != null ? type : "artist,album,track")
-                            .queryParamIfPresent("limit", Optional.ofNullable(limit))
-                            .queryParamIfPresent("offset", Optional.ofNullable(offset))
-                            .build())
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .block();
-        } catch (WebClientResponseException e) {
-            log.error("Error searching for '{}': {}", query, e.getMessage());
-            throw new RuntimeException("Failed to perform search", e);
+    private void prefetchArtistPage(String userId, String artistId) {
+        if (isCached(UpstreamRoute.ARTIST_ALBUMS, userId, artistId, ARTIST_PAGE_INCLUDE_GROUPS,
+                ARTIST_PAGE_MARKET, ARTIST_PAGE_LIMIT, 0)) {
+            return;
         }
+        prefetcher.submit(() -> getArtistAlbums(userId, artistId, ARTIST_PAGE_INCLUDE_GROUPS,
+                ARTIST_PAGE_MARKET, ARTIST_PAGE_LIMIT, 0));
     }
 
-    public Map<String, Object> getArtistAlbums(String userId, String artistId, String includeGroups, String market, Integer limit, Integer offset) {
-        Optional<SpotifyToken> tokenOpt = tokenService.getValidToken(userId);
-        if (tokenOpt.isEmpty()) {
-            throw new RuntimeException("No valid token found for user");
+    @SuppressWarnings("unchecked")
+    private void prefetchAlbums(String userId, Map<String, Object> albums) {
+        if (albums == null || !(albums.get("items") instanceof List<?> items)) {
+            return;
         }
+        items.stream()
+                .limit(prefetchConfig.getAlbums())
+                .filter(Map.class::isInstance)
+                .map(item -> (String) ((Map<String, Object>) item).get("id"))
+                .filter(albumId -> albumId != null && !isCached(UpstreamRoute.ALBUM, userId, albumId))
+                .forEach(albumId -> prefetcher.submit(() -> getAlbum(userId, albumId)));
+    }
 
-        WebClient webClient = createAuthorizedWebClient(tokenOpt.get().getAccessToken());
+    /**
+     * Only pages the user actually asked for lead to a prefetch, so paging never runs ahead by more
+     * than one page.
+     */
+    @SuppressWarnings("unchecked")
+    private void prefetchNextSearchPage(String userId, String query, String type, Integer limit, Integer offset,
+                                        Map<String, Object> results) {
+        if (results == null || prefetcher.isPrefetching()) {
+            return;
+        }
+        boolean hasNext = results.values().stream()
+                .anyMatch(section -> section instanceof Map && ((Map<String, Object>) section).get("next") != null);
+        if (!hasNext) {
+            return;
+        }
+        int nextOffset = (offset != null ? offset : 0) + (limit != null ? limit : SPOTIFY_DEFAULT_LIMIT);
+        String resolvedType = type != null ? type : "artist,album,track";
+        if (!isCached(UpstreamRoute.SEARCH, userId, query, resolvedType, limit, nextOffset)) {
+            prefetcher.submit(() -> search(userId, query, type, limit, nextOffset));
+        }
+    }
 
-        try {
-            return webClient
-                    .get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/artists/{id}/albums")
-                            .queryParamIfPresent("include_groups", Optional.ofNullable(includeGroups))
-                            .queryParamIfPresent("market", Optional.ofNullable(market))
-                            .queryParamIfPresent("limit", Optional.ofNullable(limit))
-                            .queryParamIfPresent("offset", Optional.ofNullable(offset))
-                            .build(artistId))
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .block();
-        } catch (WebClientResponseException e) {
-            log.error("Error fetching albums for artist {}: {}", artistId, e.getMessage());
-            throw new RuntimeException("Failed to fetch artist albums", e);
+    /**
+     * Filters a copy, the cached album is shared. Returns the album itself when every track is
+     * available, so it is still served from the cached bytes.
+     */
+    private static Album availableIn(Album album, String market) {
+        Album.Tracks tracks = album.getTracks();
+        if (tracks == null || tracks.getItems() == null
+                || tracks.getItems().stream().allMatch(track -> track.isAvailableIn(market))) {
+            return album;
         }
+        Album.Tracks availableTracks = new Album.Tracks();
+        BeanUtils.copyProperties(tracks, availableTracks);
+        availableTracks.setItems(tracks.getItems().stream()
+                .filter(track -> track.isAvailableIn(market))
+                .toList());
+
+        Album filtered = new Album();
+        BeanUtils.copyProperties(album, filtered);
+        filtered.setTracks(availableTracks);
+        return filtered;
     }
-    public Map<String, Object> getRelatedArtists(String userId, String artistId) {
-        Optional<SpotifyToken> tokenOpt = tokenService.getValidToken(userId);
-        if (tokenOpt.isEmpty()) {
-            throw new RuntimeException("No valid token found for user");
+
+    private boolean isCached(UpstreamRoute route, String userId, Object... params) {
+        if (catalogStore.stores(route) && catalogStore.contains(route == UpstreamRoute.ARTIST ? Artist.class : Album.class,
+                (String) params[0])) {
+            return true;
         }
+        return !cacheConfig.isEnabled() || responseCache.contains(cacheKey(route, userId, params));
+    }
 
-        WebClient webClient = createAuthorizedWebClient(tokenOpt.get().getAccessToken());
+    private static String cacheKey(UpstreamRoute route, String userId, Object... params) {
+        StringJoiner key = new StringJoiner("|", route.name() + "|", "");
+        if (route.isUserScoped()) {
+            key.add(userId);
+        }
+        for (Object param : params) {
+            key.add(String.valueOf(param));
+        }
+        return key.toString();
+    }
 
-        try {
-            return webClient
-                    .get()
-                    .uri("/artists/{id}/related-artists", artistId)
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .block();
-        } catch (WebClientResponseException e) {
-            log.error("Error fetching related artists for {}: {}", artistId, e.getMessage());
-            throw new RuntimeException("Failed to fetch related artists", e);
+    /**
+     * True for the cache keys of {@code userId}'s own responses (profile, top artists), which must
+     * not outlive the login that fetched them.
+     */
+    static boolean isUserKey(String key, String userId) {
+        for (UpstreamRoute route : UpstreamRoute.values()) {
+            if (route.isUserScoped()) {
+                String prefix = cacheKey(route, userId);
+                if (key.equals(prefix) || key.startsWith(prefix + "|")) {
+                    return true;
+                }
+            }
         }
+        return false;
+    }
+
+    private Duration ttl(UpstreamRoute route) {
+        return route.isUserScoped() ? cacheConfig.getUserTtl() : cacheConfig.getCatalogTtl();
     }
 }
@@ -0,0 +1,7 @@
+package com.spotify.app.service;
+
+/**
+ * Published after a user's access token was obtained at login or refreshed.
+ */
+public record TokenIssuedEvent(String userId, boolean refresh) {
+}
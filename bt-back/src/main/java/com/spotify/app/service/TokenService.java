@@ -1,10 +1,12 @@
 package com.spotify.app.service;
 
+import com.spotify.app.cache.ResponseCache;
 import com.spotify.app.config.SpotifyConfig;
 import com.spotify.app.model.SpotifyToken;
-import com.spotify.app.repository.TokenRepository;
+import com.spotify.app.repository.TokenStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
@@ -17,15 +19,19 @@ import java.time.LocalDateTime;
 import java.util.Base64;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TokenService {
 
-    private final TokenRepository tokenRepository;
+    private final TokenStore tokenStore;
     private final SpotifyConfig spotifyConfig;
     private final WebClient.Builder webClientBuilder;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ResponseCache responseCache;
+    private final Map<String, Object> refreshLocks = new ConcurrentHashMap<>();
 
     public SpotifyToken exchangeCodeForToken(String code, String state) {
         log.info("Exchanging authorization code for access token");
@@ -59,12 +65,17 @@ public class TokenService {
                 token.setTokenType((String) response.get("token_type"));
                 token.setExpiresIn((Integer) response.get("expires_in"));
                 token.setScope((String) response.get("scope"));
+                token.setCreatedAt(LocalDateTime.now());
+                if (token.getExpiresIn() != null) {
+                    token.setExpiresAt(token.getCreatedAt().plusSeconds(token.getExpiresIn()));
+                }
 
-                // Delete existing token for this user
-                tokenRepository.findByUserId("default").ifPresent(existingToken ->
-                        tokenRepository.deleteByUserId("default"));
-
-                return tokenRepository.save(token);
+                // Replaces any existing token for this user, who may now be another Spotify account.
+                // Dropped before the event so the warmup fetches the new account's responses
+                SpotifyToken saved = tokenStore.save(token);
+                evictUserResponses(saved.getUserId());
+                eventPublisher.publishEvent(new TokenIssuedEvent(saved.getUserId(), false));
+                return saved;
             }
         } catch (Exception e) {
             log.error("Error exchanging code for token", e);
@@ -75,7 +86,7 @@ public class TokenService {
     }
 
     public Optional<SpotifyToken> getValidToken(String userId) {
-        Optional<SpotifyToken> tokenOpt = tokenRepository.findByUserId(userId);
+        Optional<SpotifyToken> tokenOpt = tokenStore.find(userId);
 
         if (tokenOpt.isEmpty()) {
             return Optional.empty();
@@ -87,8 +98,14 @@ public class TokenService {
             return Optional.of(token);
         }
 
-        // Try to refresh the token
-        return refreshToken(token);
+        // One refresh per user at a time; whoever waited re-reads the token the first one saved
+        synchronized (refreshLocks.computeIfAbsent(userId, id -> new Object())) {
+            Optional<SpotifyToken> current = tokenStore.find(userId);
+            if (current.isEmpty() || !current.get().isExpired()) {
+                return current;
+            }
+            return refreshToken(current.get());
+        }
     }
 
     private Optional<SpotifyToken> refreshToken(SpotifyToken expiredToken) {
@@ -132,7 +149,9 @@ public class TokenService {
                 expiredToken.setCreatedAt(LocalDateTime.now());
                 expiredToken.setExpiresAt(LocalDateTime.now().plusSeconds(expiredToken.getExpiresIn()));
 
-                return Optional.of(tokenRepository.save(expiredToken));
+                SpotifyToken saved = tokenStore.save(expiredToken);
+                eventPublisher.publishEvent(new TokenIssuedEvent(saved.getUserId(), true));
+                return Optional.of(saved);
             }
         } catch (Exception e) {
             log.error("Error refreshing token for user: {}", expiredToken.getUserId(), e);
@@ -142,9 +161,14 @@ public class TokenService {
     }
 
     public void revokeToken(String userId) {
-        tokenRepository.findByUserId(userId).ifPresent(token -> {
-            tokenRepository.deleteByUserId(userId);
+        tokenStore.find(userId).ifPresent(token -> {
+            tokenStore.delete(userId);
             log.info("Token revoked for user: {}", userId);
         });
+        evictUserResponses(userId);
+    }
+
+    private void evictUserResponses(String userId) {
+        responseCache.invalidate(key -> SpotifyService.isUserKey(key, userId));
     }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.spotify.app.service;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * The user has no usable Spotify token, or Spotify rejected it. Answered with 401 so the
+ * frontend sends the user through login again.
+ */
+public class UnauthorizedException extends UpstreamException {
+
+    /**
+     * Thrown for every request without a session; stackless, so one instance serves them all.
+     */
+    public static final UnauthorizedException NO_TOKEN = new UnauthorizedException("No valid token found for user", null, null);
+
+    public UnauthorizedException(String message, UpstreamRoute route, String upstreamBody) {
+        super(HttpStatus.UNAUTHORIZED, "unauthorized", message, route, upstreamBody != null ? 401 : null, upstreamBody);
+    }
+}
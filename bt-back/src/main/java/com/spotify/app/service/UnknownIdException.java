@@ -0,0 +1,14 @@
+package com.spotify.app.service;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Spotify has no artist or album with this id. Thrown for every request bots make for known-bad
+ * ids, so like every {@link UpstreamException} it carries no stack trace.
+ */
+public class UnknownIdException extends UpstreamException {
+
+    public UnknownIdException(String type, String id) {
+        super(HttpStatus.NOT_FOUND, "not_found", "No " + type + " with id " + id, null, null, null);
+    }
+}
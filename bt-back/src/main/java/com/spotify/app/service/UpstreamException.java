@@ -0,0 +1,106 @@
+package com.spotify.app.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A Spotify call that failed or could not be made, with the status and error body the API
+ * answers for it. These are expected failures that arrive in bursts during upstream incidents,
+ * so they carry no stack trace and keep only the upstream status and body, not the cause.
+ */
+public class UpstreamException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final String error;
+    private final UpstreamRoute route;
+    private final Integer upstreamStatus;
+    private final String upstreamBody;
+
+    // Built on first use; shared instances answer with the same map every time
+    private volatile Map<String, Object> body;
+
+    public UpstreamException(HttpStatus status, String error, String message, UpstreamRoute route,
+                             Integer upstreamStatus, String upstreamBody) {
+        super(message, null, false, false);
+        this.status = status;
+        this.error = error;
+        this.route = route;
+        this.upstreamStatus = upstreamStatus;
+        this.upstreamBody = upstreamBody;
+    }
+
+    /**
+     * Maps Spotify's answer: 401, 404 and 429 and other client errors keep their status, server
+     * errors become 502.
+     */
+    public static UpstreamException from(UpstreamRoute route, String message, WebClientResponseException e) {
+        int code = e.getStatusCode().value();
+        String upstreamBody = e.getResponseBodyAsString();
+        if (code == 401) {
+            return new UnauthorizedException(message, route, upstreamBody);
+        }
+        if (code == 429) {
+            return new RateLimitedException(message, route, RateLimitedException.retryAfter(e), upstreamBody);
+        }
+        if (code == 404) {
+            return new UpstreamException(HttpStatus.NOT_FOUND, "not_found", message, route, code, upstreamBody);
+        }
+        HttpStatus resolved = HttpStatus.resolve(code);
+        if (resolved != null && resolved.is4xxClientError()) {
+            return new UpstreamException(resolved, "upstream_rejected", message, route, code, upstreamBody);
+        }
+        return new UpstreamException(HttpStatus.BAD_GATEWAY, "upstream_error", message, route, code, upstreamBody);
+    }
+
+    /**
+     * A call that got no answer: 504 when it timed out, 502 otherwise.
+     */
+    public static UpstreamException unanswered(UpstreamRoute route, String message, Throwable e) {
+        for (Throwable cause = Exceptions.unwrap(e); cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof SocketTimeoutException
+                    || cause instanceof io.netty.handler.timeout.TimeoutException) {
+                return new UpstreamException(HttpStatus.GATEWAY_TIMEOUT, "upstream_timeout", message, route, null, null);
+            }
+        }
+        return new UpstreamException(HttpStatus.BAD_GATEWAY, "upstream_unavailable", message, route, null, null);
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public UpstreamRoute getRoute() {
+        return route;
+    }
+
+    /**
+     * The JSON error body: {@code error} and {@code message}, plus {@code spotify_status} and
+     * {@code spotify_error} when Spotify answered.
+     */
+    public Map<String, Object> body() {
+        Map<String, Object> built = body;
+        if (built == null) {
+            built = new LinkedHashMap<>();
+            built.put("error", error);
+            built.put("message", getMessage());
+            if (upstreamStatus != null) {
+                built.put("spotify_status", upstreamStatus);
+                built.put("spotify_error", upstreamBody);
+            }
+            built = Collections.unmodifiableMap(built);
+            body = built;
+        }
+        return built;
+    }
+}
@@ -0,0 +1,216 @@
+package com.spotify.app.service;
+
+import com.spotify.app.config.UpstreamLimitConfig;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Adaptive limit on concurrent upstream calls per route, so an upstream slowdown queues a few
+ * calls instead of every worker thread. The limit follows TCP Vegas: from the shortest recent RTT
+ * and each call's RTT it estimates how many calls are queued upstream, grows while that queue is
+ * small and shrinks when it builds up or calls fail with 429, 5xx or a timeout. Calls over the
+ * limit are turned away at once with 503; prefetches only get {@code prefetch-share} of it.
+ * <p>
+ * Limits, in-flight calls and rejections are published as {@code upstream.concurrency.*}
+ * metrics tagged with the route.
+ */
+@Component
+public class UpstreamLimiter implements MeterBinder {
+
+    private static final Permit UNLIMITED = new Permit(null, 0, 0);
+
+    private final UpstreamLimitConfig config;
+    private final Map<UpstreamRoute, RouteLimit> limits = new EnumMap<>(UpstreamRoute.class);
+    private final LongSupplier nanoClock;
+
+    @Autowired
+    public UpstreamLimiter(UpstreamLimitConfig config) {
+        this(config, System::nanoTime);
+    }
+
+    UpstreamLimiter(UpstreamLimitConfig config, LongSupplier nanoClock) {
+        this.config = config;
+        this.nanoClock = nanoClock;
+        for (UpstreamRoute route : UpstreamRoute.values()) {
+            limits.put(route, new RouteLimit(route));
+        }
+    }
+
+    /**
+     * A permit for one call on {@code route}, to be released when the call ends.
+     *
+     * @throws UpstreamException with 503 when the route is at its limit
+     */
+    public Permit acquire(UpstreamRoute route, boolean prefetch) {
+        if (!config.isEnabled()) {
+            return UNLIMITED;
+        }
+        return limits.get(route).acquire(prefetch);
+    }
+
+    /**
+     * Like {@link #acquire} but returns {@code null} instead of throwing when the route is at its
+     * limit, for optional calls such as hedges. Refusals are not counted as rejections.
+     */
+    public Permit tryAcquire(UpstreamRoute route, boolean prefetch) {
+        if (!config.isEnabled()) {
+            return UNLIMITED;
+        }
+        return limits.get(route).tryAcquire(prefetch);
+    }
+
+    public int getLimit(UpstreamRoute route) {
+        return (int) limits.get(route).limit;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        limits.forEach((route, limit) -> {
+            Gauge.builder("upstream.concurrency.limit", limit, state -> state.limit)
+                    .tag("route", route.name())
+                    .description("Allowed concurrent upstream calls")
+                    .register(registry);
+            Gauge.builder("upstream.concurrency.inflight", limit, state -> state.inflight)
+                    .tag("route", route.name())
+                    .register(registry);
+            FunctionCounter.builder("upstream.concurrency.rejected", limit, state -> state.rejected)
+                    .tag("route", route.name())
+                    .description("Upstream calls turned away at the limit")
+                    .register(registry);
+        });
+    }
+
+    /**
+     * One admitted call. Release it with the outcome once the call completes; {@link #abandon()}
+     * releases it without a sample (cancelled calls say nothing about upstream latency) and does
+     * nothing if it was already released.
+     */
+    public static final class Permit {
+        private final RouteLimit owner;
+        private final long startNanos;
+        private final int inflightAtStart;
+        private boolean released;
+
+        private Permit(RouteLimit owner, long startNanos, int inflightAtStart) {
+            this.owner = owner;
+            this.startNanos = startNanos;
+            this.inflightAtStart = inflightAtStart;
+        }
+
+        /**
+         * @param dropped the call failed in a way that signals overload: 429, 5xx or a timeout
+         */
+        public void release(boolean dropped) {
+            if (owner != null && !released) {
+                released = true;
+                owner.release(owner.now() - startNanos, inflightAtStart, dropped, true);
+            }
+        }
+
+        public void abandon() {
+            if (owner != null && !released) {
+                released = true;
+                owner.release(0, inflightAtStart, false, false);
+            }
+        }
+    }
+
+    private final class RouteLimit {
+        // Shared, stackless, so rejections under overload cost nothing to build
+        private final UpstreamException rejection;
+
+        private volatile double limit;
+        private volatile int inflight;
+        private volatile long rejected;
+        private long minRtt;
+        private long samplesUntilProbe;
+
+        RouteLimit(UpstreamRoute route) {
+            this.rejection = new UpstreamException(HttpStatus.SERVICE_UNAVAILABLE, "upstream_busy",
+                    "Too many calls to Spotify in progress for " + route, route, null, null);
+            this.limit = config.getInitialLimit();
+            this.samplesUntilProbe = nextProbe();
+        }
+
+        synchronized Permit acquire(boolean prefetch) {
+            Permit permit = tryAcquire(prefetch);
+            if (permit == null) {
+                rejected++;
+                throw rejection;
+            }
+            return permit;
+        }
+
+        synchronized Permit tryAcquire(boolean prefetch) {
+            double allowed = prefetch ? limit * config.getPrefetchShare() : limit;
+            if (inflight >= Math.max(1, (int) allowed)) {
+                return null;
+            }
+            inflight++;
+            return new Permit(this, now(), inflight);
+        }
+
+        long now() {
+            return nanoClock.getAsLong();
+        }
+
+        synchronized void release(long rtt, int inflightAtStart, boolean dropped, boolean sampled) {
+            inflight--;
+            if (sampled) {
+                update(rtt, inflightAtStart, dropped);
+            }
+        }
+
+        private void update(long rtt, int inflightAtStart, boolean dropped) {
+            if (--samplesUntilProbe <= 0) {
+                // Forget the old minimum, which may predate a lasting change in upstream latency
+                samplesUntilProbe = nextProbe();
+                minRtt = rtt;
+                return;
+            }
+            if (minRtt == 0 || rtt < minRtt) {
+                minRtt = rtt;
+                return;
+            }
+
+            double current = limit;
+            double log = Math.max(1, Math.log10(current));
+            double next;
+            if (dropped) {
+                next = current - log;
+            } else if (inflightAtStart * 2 < current) {
+                // Not using the limit; latency here says nothing about whether it could be higher
+                return;
+            } else {
+                double queued = Math.ceil(current * (1 - (double) minRtt / rtt));
+                if (queued <= log) {
+                    next = current + 6 * log;
+                } else if (queued < 3 * log) {
+                    next = current + log;
+                } else if (queued > 6 * log) {
+                    next = current - log;
+                } else {
+                    return;
+                }
+            }
+            next = Math.max(config.getMinLimit(), Math.min(config.getMaxLimit(), next));
+            limit = (1 - config.getSmoothing()) * current + config.getSmoothing() * next;
+        }
+
+        // Jittered so routes do not all reset their minimum at the same moment
+        private long nextProbe() {
+            double jitter = 0.5 + ThreadLocalRandom.current().nextDouble() * 0.5;
+            return Math.max(1, (long) (config.getProbeMultiplier() * limit * jitter));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.spotify.app.service;
+
+/**
+ * The Spotify Web API endpoints the backend calls. User scoped routes return data for the token's
+ * owner and are cached per user; the rest is catalog data shared by everyone. Routes addressed by
+ * an artist or album id name that id's type, and take the id as their first parameter.
+ */
+public enum UpstreamRoute {
+    CURRENT_USER(true, null),
+    TOP_ARTISTS(true, null),
+    ARTIST(false, "artist"),
+    ARTIST_ALBUMS(false, "artist"),
+    ARTIST_TOP_TRACKS(false, "artist"),
+    RELATED_ARTISTS(false, "artist"),
+    ALBUM(false, "album"),
+    SEARCH(false, null);
+
+    private final boolean userScoped;
+    private final String idType;
+
+    UpstreamRoute(boolean userScoped, String idType) {
+        this.userScoped = userScoped;
+        this.idType = idType;
+    }
+
+    public boolean isUserScoped() {
+        return userScoped;
+    }
+
+    public String getIdType() {
+        return idType;
+    }
+}
@@ -0,0 +1,86 @@
+package com.spotify.app.perf;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Minimal {@code --key=value} command line parsing shared by the perf tools.
+ */
+final class Args {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    Args(String[] args) {
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Expected --key=value but got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                values.put(arg.substring(2), "true");
+            } else {
+                values.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+    }
+
+    String get(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    boolean has(String key) {
+        return values.containsKey(key);
+    }
+
+    int getInt(String key, int defaultValue) {
+        return values.containsKey(key) ? Integer.parseInt(values.get(key)) : defaultValue;
+    }
+
+    double getDouble(String key, double defaultValue) {
+        return values.containsKey(key) ? Double.parseDouble(values.get(key)) : defaultValue;
+    }
+
+    /**
+     * Accepts plain seconds ({@code 30}) or a unit suffix ({@code 500ms}, {@code 30s}, {@code 2m}).
+     */
+    Duration getDuration(String key, Duration defaultValue) {
+        if (!values.containsKey(key)) {
+            return defaultValue;
+        }
+        String value = values.get(key).trim();
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("s")) {
+            value = value.substring(0, value.length() - 1);
+        }
+        return Duration.ofSeconds(Long.parseLong(value));
+    }
+
+    List<Integer> getIntList(String key, String defaultValue) {
+        return Arrays.stream(get(key, defaultValue).split(","))
+                .map(String::trim)
+                .map(Integer::parseInt)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * All values whose key starts with {@code prefix + "."}, keyed by the remainder.
+     */
+    Map<String, String> withPrefix(String prefix) {
+        Map<String, String> result = new HashMap<>();
+        values.forEach((key, value) -> {
+            if (key.startsWith(prefix + ".")) {
+                result.put(key.substring(prefix.length() + 1), value);
+            }
+        });
+        return result;
+    }
+}
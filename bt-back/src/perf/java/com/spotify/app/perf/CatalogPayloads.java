@@ -0,0 +1,250 @@
+package com.spotify.app.perf;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic generator for Spotify Web API payloads shaped and sized like the real thing
+ * (22 character base62 ids, three image sizes, ~185 market codes per album and track).
+ * Not thread safe; use one instance per thread or per rendered payload.
+ */
+public final class CatalogPayloads {
+
+    public static final List<String> MARKETS = List.of(
+            "AD", "AE", "AG", "AL", "AM", "AO", "AR", "AT", "AU", "AZ", "BA", "BB", "BD", "BE", "BF",
+            "BG", "BH", "BI", "BJ", "BN", "BO", "BR", "BS", "BT", "BW", "BY", "BZ", "CA", "CD", "CG",
+            "CH", "CI", "CL", "CM", "CO", "CR", "CV", "CW", "CY", "CZ", "DE", "DJ", "DK", "DM", "DO",
+            "DZ", "EC", "EE", "EG", "ES", "ET", "FI", "FJ", "FM", "FR", "GA", "GB", "GD", "GE", "GH",
+            "GM", "GN", "GQ", "GR", "GT", "GW", "GY", "HK", "HN", "HR", "HT", "HU", "ID", "IE", "IL",
+            "IN", "IQ", "IS", "IT", "JM", "JO", "JP", "KE", "KG", "KH", "KI", "KM", "KN", "KR", "KW",
+            "KZ", "LA", "LB", "LC", "LI", "LK", "LR", "LS", "LT", "LU", "LV", "LY", "MA", "MC", "MD",
+            "ME", "MG", "MH", "MK", "ML", "MN", "MO", "MR", "MT", "MU", "MV", "MW", "MX", "MY", "MZ",
+            "NA", "NE", "NG", "NI", "NL", "NO", "NP", "NR", "NZ", "OM", "PA", "PE", "PG", "PH", "PK",
+            "PL", "PR", "PS", "PT", "PW", "PY", "QA", "RO", "RS", "RW", "SA", "SB", "SC", "SE", "SG",
+            "SI", "SK", "SL", "SM", "SN", "SR", "ST", "SV", "SZ", "TD", "TG", "TH", "TJ", "TL", "TN",
+            "TO", "TR", "TT", "TV", "TW", "TZ", "UA", "UG", "US", "UY", "UZ", "VC", "VE", "VN", "VU",
+            "WS", "XK", "ZA", "ZM", "ZW");
+
+    private static final String API_URL = "https://api.spotify.com/v1";
+    private static final String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final String[] GENRES = {
+            "argentine rock", "latin pop", "indie folk", "art pop", "chamber pop", "dance pop",
+            "modern rock", "neo soul", "alternative r&b", "reggaeton", "k-pop", "synthwave"};
+    private static final String[] WORDS = {
+            "Midnight", "Echoes", "Paper", "Satellite", "Golden", "Rivers", "Static", "Neon",
+            "Glass", "Summer", "Ghost", "Velvet", "Parallel", "Lights", "Ocean", "Signal"};
+
+    private final Random random;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public CatalogPayloads(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public String id() {
+        StringBuilder id = new StringBuilder(22);
+        for (int i = 0; i < 22; i++) {
+            id.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return id.toString();
+    }
+
+    public Map<String, Object> artist(String id) {
+        Map<String, Object> artist = simplifiedArtist(id);
+        artist.put("followers", Map.of("href", "", "total", random.nextInt(50_000_000)));
+        artist.put("genres", List.of(GENRES[random.nextInt(GENRES.length)], GENRES[random.nextInt(GENRES.length)]));
+        artist.put("images", images(id));
+        artist.put("popularity", random.nextInt(100));
+        return artist;
+    }
+
+    public Map<String, Object> album(String id, int trackCount) {
+        Map<String, Object> album = simplifiedAlbum(id);
+        List<Object> tracks = new ArrayList<>(trackCount);
+        for (int i = 0; i < trackCount; i++) {
+            Map<String, Object> track = track(id(), false);
+            track.put("track_number", i + 1);
+            tracks.add(track);
+        }
+        album.put("tracks", paging(API_URL + "/albums/" + id + "/tracks", tracks, 50, 0, trackCount));
+        album.put("copyrights", List.of(Map.of("text", "(C) 2024 " + title(), "type", "C")));
+        album.put("external_ids", Map.of("upc", String.valueOf(100_000_000_000L + random.nextInt(Integer.MAX_VALUE))));
+        album.put("genres", List.of());
+        album.put("label", title() + " Records");
+        album.put("popularity", random.nextInt(100));
+        return album;
+    }
+
+    public Map<String, Object> track(String id, boolean withAlbum) {
+        Map<String, Object> track = new LinkedHashMap<>();
+        if (withAlbum) {
+            track.put("album", simplifiedAlbum(id()));
+        }
+        track.put("artists", List.of(simplifiedArtist(id())));
+        track.put("available_markets", MARKETS);
+        track.put("disc_number", 1);
+        track.put("duration_ms", 120_000 + random.nextInt(240_000));
+        track.put("explicit", random.nextBoolean());
+        track.put("external_ids", Map.of("isrc", "US" + id.substring(0, 10).toUpperCase()));
+        track.put("external_urls", externalUrls("track", id));
+        track.put("href", API_URL + "/tracks/" + id);
+        track.put("id", id);
+        track.put("is_local", false);
+        track.put("name", title());
+        track.put("popularity", random.nextInt(100));
+        track.put("preview_url", "https://p.scdn.co/mp3-preview/" + id);
+        track.put("track_number", 1 + random.nextInt(12));
+        track.put("type", "track");
+        track.put("uri", "spotify:track:" + id);
+        return track;
+    }
+
+    public Map<String, Object> search(String query, int limit, int offset) {
+        List<Object> artists = new ArrayList<>(limit);
+        List<Object> albums = new ArrayList<>(limit);
+        List<Object> tracks = new ArrayList<>(limit);
+        for (int i = 0; i < limit; i++) {
+            artists.add(artist(id()));
+            albums.add(simplifiedAlbum(id()));
+            tracks.add(track(id(), true));
+        }
+        String href = API_URL + "/search?query=" + query + "&offset=" + offset + "&limit=" + limit;
+        Map<String, Object> search = new LinkedHashMap<>();
+        search.put("artists", paging(href + "&type=artist", artists, limit, offset, 800));
+        search.put("albums", paging(href + "&type=album", albums, limit, offset, 800));
+        search.put("tracks", paging(href + "&type=track", tracks, limit, offset, 800));
+        return search;
+    }
+
+    public Map<String, Object> currentUser(String userId) {
+        Map<String, Object> user = new LinkedHashMap<>();
+        user.put("country", MARKETS.get(random.nextInt(MARKETS.size())));
+        user.put("display_name", title());
+        user.put("email", userId + "@example.com");
+        user.put("explicit_content", Map.of("filter_enabled", false, "filter_locked", false));
+        user.put("external_urls", externalUrls("user", userId));
+        user.put("followers", Map.of("href", "", "total", random.nextInt(500)));
+        user.put("href", API_URL + "/users/" + userId);
+        user.put("id", userId);
+        user.put("images", images(userId).subList(0, 2));
+        user.put("product", "premium");
+        user.put("type", "user");
+        user.put("uri", "spotify:user:" + userId);
+        return user;
+    }
+
+    public Map<String, Object> topArtists(String timeRange, int limit, int offset) {
+        List<Object> artists = new ArrayList<>(limit);
+        for (int i = 0; i < limit; i++) {
+            artists.add(artist(id()));
+        }
+        return paging(API_URL + "/me/top/artists?time_range=" + timeRange, artists, limit, offset, 50);
+    }
+
+    public Map<String, Object> artistAlbums(String artistId, int limit, int offset) {
+        List<Object> albums = new ArrayList<>(limit);
+        for (int i = 0; i < limit; i++) {
+            Map<String, Object> album = simplifiedAlbum(id());
+            album.put("album_group", album.get("album_type"));
+            albums.add(album);
+        }
+        return paging(API_URL + "/artists/" + artistId + "/albums", albums, limit, offset, 120);
+    }
+
+    public Map<String, Object> topTracks(int count) {
+        List<Object> tracks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tracks.add(track(id(), true));
+        }
+        return Map.of("tracks", tracks);
+    }
+
+    public Map<String, Object> relatedArtists(int count) {
+        List<Object> artists = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            artists.add(artist(id()));
+        }
+        return Map.of("artists", artists);
+    }
+
+    public Map<String, Object> token() {
+        Map<String, Object> token = new LinkedHashMap<>();
+        token.put("access_token", "BQ" + id() + id() + id());
+        token.put("token_type", "Bearer");
+        token.put("scope", "user-read-private user-read-email user-top-read");
+        token.put("expires_in", 3600);
+        token.put("refresh_token", "AQ" + id() + id() + id());
+        return token;
+    }
+
+    public byte[] toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to render payload", e);
+        }
+    }
+
+    private Map<String, Object> simplifiedArtist(String id) {
+        Map<String, Object> artist = new LinkedHashMap<>();
+        artist.put("external_urls", externalUrls("artist", id));
+        artist.put("href", API_URL + "/artists/" + id);
+        artist.put("id", id);
+        artist.put("name", title());
+        artist.put("type", "artist");
+        artist.put("uri", "spotify:artist:" + id);
+        return artist;
+    }
+
+    private Map<String, Object> simplifiedAlbum(String id) {
+        Map<String, Object> album = new LinkedHashMap<>();
+        album.put("album_type", random.nextInt(4) == 0 ? "single" : "album");
+        album.put("artists", List.of(simplifiedArtist(id())));
+        album.put("available_markets", MARKETS);
+        album.put("external_urls", externalUrls("album", id));
+        album.put("href", API_URL + "/albums/" + id);
+        album.put("id", id);
+        album.put("images", images(id));
+        album.put("name", title());
+        album.put("release_date", (1970 + random.nextInt(55)) + "-0" + (1 + random.nextInt(9)) + "-1" + random.nextInt(10));
+        album.put("release_date_precision", "day");
+        album.put("total_tracks", 1 + random.nextInt(20));
+        album.put("type", "album");
+        album.put("uri", "spotify:album:" + id);
+        return album;
+    }
+
+    private Map<String, Object> paging(String href, List<Object> items, int limit, int offset, int total) {
+        Map<String, Object> paging = new LinkedHashMap<>();
+        paging.put("href", href);
+        paging.put("items", items);
+        paging.put("limit", limit);
+        paging.put("next", offset + limit < total ? href + "&next=" + (offset + limit) : null);
+        paging.put("offset", offset);
+        paging.put("previous", offset > 0 ? href + "&previous=" + Math.max(0, offset - limit) : null);
+        paging.put("total", total);
+        return paging;
+    }
+
+    private List<Map<String, Object>> images(String id) {
+        List<Map<String, Object>> images = new ArrayList<>(3);
+        for (int size : new int[]{640, 300, 64}) {
+            images.add(Map.of("url", "https://i.scdn.co/image/ab67616d0000" + size + id, "height", size, "width", size));
+        }
+        return images;
+    }
+
+    private Map<String, String> externalUrls(String type, String id) {
+        return Map.of("spotify", "https://open.spotify.com/" + type + "/" + id);
+    }
+
+    private String title() {
+        return WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+    }
+}
@@ -0,0 +1,81 @@
+package com.spotify.app.perf;
+
+import com.spotify.app.SpotifyApiApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Runs the backend in-process against a local upstream, for the offline perf tools.
+ */
+final class EmbeddedBackend implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+
+    EmbeddedBackend(String apiUrl, String tokenUrl) {
+        // Passed as command line arguments so they win over any local application.properties.
+        // Drivers send everything as one user, so per-user limits are pinned to the global ones
+        this.context = new SpringApplicationBuilder(SpotifyApiApplication.class).run(
+                "--server.port=0",
+                "--requests.max-running-per-user=0",
+                "--requests.max-queued-per-user=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--spring.datasource.url=jdbc:h2:mem:perf",
+                "--spotify.client-id=perf",
+                "--spotify.client-secret=perf",
+                "--spotify.redirect-uri=http://127.0.0.1/auth/spotify/callback",
+                "--spotify.api-url=" + apiUrl,
+                "--spotify.token-url=" + tokenUrl);
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+    }
+
+    /**
+     * Polls {@code /api/health} until the backend answers, for targets that are still starting up.
+     */
+    static void awaitHealthy(HttpClient client, String target, Duration timeout) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(target + "/api/health")).timeout(Duration.ofSeconds(2)).build();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException(target + " did not become healthy within " + timeout);
+    }
+
+    /**
+     * Stores a token for the default user through the regular code exchange. Against a backend that
+     * talks to the real accounts service this fails, and an existing token is assumed instead.
+     */
+    static void login(HttpClient client, String target) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(target + "/auth/spotify"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"code\":\"perf\",\"state\":\"perf\"}"))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            System.out.println("Login against " + target + " failed with " + response.statusCode()
+                    + ", relying on an existing token");
+        }
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,70 @@
+package com.spotify.app.perf;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Response delay model for {@link UpstreamStub}. Parsed from a compact spec:
+ * <ul>
+ *     <li>{@code none}</li>
+ *     <li>{@code fixed:50} - always 50 ms</li>
+ *     <li>{@code uniform:20:80} - uniformly between 20 and 80 ms</li>
+ *     <li>{@code lognormal:40:400} - median 40 ms, p99 400 ms, which gives the long tail real APIs have</li>
+ * </ul>
+ */
+abstract class LatencyDistribution {
+
+    private static final double Z_99 = 2.326;
+
+    /**
+     * Next delay in microseconds.
+     */
+    abstract long sampleMicros();
+
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        switch (parts[0]) {
+            case "none":
+                return fixed(0);
+            case "fixed":
+                return fixed(Double.parseDouble(parts[1]));
+            case "uniform":
+                return uniform(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+            case "lognormal":
+                return logNormal(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+            default:
+                throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+        }
+    }
+
+    static LatencyDistribution fixed(double millis) {
+        long micros = (long) (millis * 1000);
+        return new LatencyDistribution() {
+            @Override
+            long sampleMicros() {
+                return micros;
+            }
+        };
+    }
+
+    static LatencyDistribution uniform(double minMillis, double maxMillis) {
+        long min = (long) (minMillis * 1000);
+        long max = (long) (maxMillis * 1000);
+        return new LatencyDistribution() {
+            @Override
+            long sampleMicros() {
+                return min + ThreadLocalRandom.current().nextLong(Math.max(1, max - min));
+            }
+        };
+    }
+
+    static LatencyDistribution logNormal(double medianMillis, double p99Millis) {
+        double mu = Math.log(medianMillis * 1000);
+        double sigma = Math.log(p99Millis / medianMillis) / Z_99;
+        return new LatencyDistribution() {
+            @Override
+            long sampleMicros() {
+                return (long) Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian());
+            }
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package com.spotify.app.perf;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Single-writer latency sample buffer. Each load worker owns one; they are merged after a run
+ * to compute exact percentiles.
+ */
+final class LatencyRecorder {
+
+    private long[] samples = new long[16_384];
+    private int count;
+    private int errors;
+
+    void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, samples.length * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    void recordError() {
+        errors++;
+    }
+
+    static Summary summarize(List<LatencyRecorder> recorders, long elapsedNanos) {
+        int total = recorders.stream().mapToInt(r -> r.count).sum();
+        long[] merged = new long[total];
+        int errors = 0;
+        int position = 0;
+        for (LatencyRecorder recorder : recorders) {
+            System.arraycopy(recorder.samples, 0, merged, position, recorder.count);
+            position += recorder.count;
+            errors += recorder.errors;
+        }
+        Arrays.sort(merged);
+        return new Summary(total, errors, total / (elapsedNanos / 1e9),
+                percentile(merged, 0.50), percentile(merged, 0.99), percentile(merged, 0.999),
+                total == 0 ? 0 : merged[total - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    /**
+     * Latencies in milliseconds, throughput in requests per second. Errors are non-2xx responses
+     * and transport failures; their latency is still recorded.
+     */
+    static final class Summary {
+        public final int requests;
+        public final int errors;
+        public final double throughput;
+        public final double p50;
+        public final double p99;
+        public final double p999;
+        public final double max;
+
+        Summary(int requests, int errors, double throughput, double p50, double p99, double p999, double max) {
+            this.requests = requests;
+            this.errors = errors;
+            this.throughput = throughput;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.spotify.app.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Closed-loop load generator for the backend. Each concurrency level runs a fixed number of workers
+ * issuing a weighted mix of API requests back to back, then reports throughput and p50/p99/p999.
+ * <p>
+ * Without {@code --target} it starts an {@link UpstreamStub} and the backend in-process, wired to
+ * each other, so the whole run is offline:
+ * <pre>
+ * ./gradlew loadTest -PloadArgs="--concurrency=1,8,32,128 --duration=30s --latency=lognormal:40:400"
+ * ./gradlew loadTest -PloadArgs="--target=http://localhost:8080 --mix=search=70,artist=30"
+ * </pre>
+ * Stub options ({@code --latency}, {@code --throttle-rate}, ...) are passed through to the embedded stub.
+ */
+public final class LoadDriver {
+
+    private static final String DEFAULT_MIX =
+            "artist=25,album=20,artist-albums=15,top-tracks=10,search=20,me=5,top-artists=5";
+    private static final String[] QUERIES = {
+            "midnight", "echoes", "paper moon", "satellite", "golden hour", "rivers", "neon", "glass animals"};
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final String target;
+    private final String userId;
+    private final List<String> ids = new ArrayList<>();
+    private final List<String> routes = new ArrayList<>();
+    private final List<Integer> cumulativeWeights = new ArrayList<>();
+    private int totalWeight;
+
+    LoadDriver(String target, String userId, String mix) {
+        this.target = target;
+        this.userId = userId;
+
+        CatalogPayloads payloads = new CatalogPayloads(7);
+        for (int i = 0; i < 500; i++) {
+            ids.add(payloads.id());
+        }
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split("=");
+            totalWeight += Integer.parseInt(parts[1].trim());
+            routes.add(parts[0].trim());
+            cumulativeWeights.add(totalWeight);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Args options = new Args(args);
+        List<Integer> levels = options.getIntList("concurrency", "1,4,16,64");
+        Duration warmup = options.getDuration("warmup", Duration.ofSeconds(5));
+        Duration duration = options.getDuration("duration", Duration.ofSeconds(20));
+        Path output = Path.of(options.get("output", "build/reports/load/results.json"));
+
+        UpstreamStub stub = null;
+        EmbeddedBackend backend = null;
+        try {
+            String target = options.get("target", null);
+            if (target == null) {
+                stub = new UpstreamStub(UpstreamStub.Settings.fromArgs(options, 0));
+                backend = new EmbeddedBackend(stub.apiUrl(), stub.tokenUrl());
+                target = backend.url();
+            }
+
+            LoadDriver driver = new LoadDriver(target, options.get("user-id", "default"), options.get("mix", DEFAULT_MIX));
+            EmbeddedBackend.awaitHealthy(driver.client, target, options.getDuration("startup-timeout", Duration.ofSeconds(60)));
+            EmbeddedBackend.login(driver.client, target);
+
+            if (!warmup.isZero()) {
+                System.out.printf("Warming up %s for %ds%n", target, warmup.toSeconds());
+                driver.run(levels.stream().max(Integer::compare).orElse(1), warmup);
+            }
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            System.out.printf("%12s %10s %8s %12s %10s %10s %10s %10s%n",
+                    "concurrency", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+            for (int concurrency : levels) {
+                LatencyRecorder.Summary summary = driver.run(concurrency, duration);
+                System.out.printf("%12d %10d %8d %12.1f %10.2f %10.2f %10.2f %10.2f%n",
+                        concurrency, summary.requests, summary.errors, summary.throughput,
+                        summary.p50, summary.p99, summary.p999, summary.max);
+
+                Map<String, Object> level = new LinkedHashMap<>();
+                level.put("concurrency", concurrency);
+                level.put("requests", summary.requests);
+                level.put("errors", summary.errors);
+                level.put("throughput", summary.throughput);
+                level.put("p50Ms", summary.p50);
+                level.put("p99Ms", summary.p99);
+                level.put("p999Ms", summary.p999);
+                level.put("maxMs", summary.max);
+                results.add(level);
+            }
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("target", target);
+            report.put("durationSeconds", duration.toSeconds());
+            report.put("mix", options.get("mix", DEFAULT_MIX));
+            report.put("levels", results);
+            if (stub != null) {
+                report.put("upstreamRequests", stub.requestCounts());
+            }
+            Files.createDirectories(output.toAbsolutePath().getParent());
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), report);
+            System.out.println("Results written to " + output.toAbsolutePath());
+        } finally {
+            if (backend != null) {
+                backend.close();
+            }
+            if (stub != null) {
+                stub.close();
+            }
+        }
+    }
+
+    LatencyRecorder.Summary run(int concurrency, Duration duration) throws InterruptedException {
+        List<LatencyRecorder> recorders = new ArrayList<>(concurrency);
+        List<Thread> workers = new ArrayList<>(concurrency);
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+
+        for (int i = 0; i < concurrency; i++) {
+            LatencyRecorder recorder = new LatencyRecorder();
+            recorders.add(recorder);
+            Thread worker = new Thread(() -> work(recorder, deadline), "load-worker-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return LatencyRecorder.summarize(recorders, System.nanoTime() - start);
+    }
+
+    private void work(LatencyRecorder recorder, long deadline) {
+        while (System.nanoTime() < deadline) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(target + nextPath()))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+            long begin = System.nanoTime();
+            try {
+                HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                recorder.record(System.nanoTime() - begin);
+                if (response.statusCode() >= 400) {
+                    recorder.recordError();
+                }
+            } catch (IOException e) {
+                recorder.record(System.nanoTime() - begin);
+                recorder.recordError();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private String nextPath() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int pick = random.nextInt(totalWeight);
+        int index = 0;
+        while (cumulativeWeights.get(index) <= pick) {
+            index++;
+        }
+        String id = ids.get(random.nextInt(ids.size()));
+        String user = "userId=" + userId;
+
+        switch (routes.get(index)) {
+            case "artist":
+                return "/api/artists/" + id + "?" + user;
+            case "album":
+                return "/api/albums/" + id + "?" + user;
+            case "artist-albums":
+                return "/api/artists/" + id + "/albums?limit=10&offset=0&" + user;
+            case "top-tracks":
+                return "/api/artists/" + id + "/top-tracks?market=US&" + user;
+            case "related-artists":
+                return "/api/artists/" + id + "/related-artists?" + user;
+            case "search":
+                String query = QUERIES[random.nextInt(QUERIES.length)];
+                return "/api/search?q=" + URLEncoder.encode(query, StandardCharsets.UTF_8)
+                        + "&type=artist,album&limit=10&" + user;
+            case "me":
+                return "/api/me?" + user;
+            case "top-artists":
+                return "/api/me/top/artists?timeRange=medium_term&limit=10&" + user;
+            default:
+                throw new IllegalArgumentException("Unknown route in mix: " + routes.get(index));
+        }
+    }
+}
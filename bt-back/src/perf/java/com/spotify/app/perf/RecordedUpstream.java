@@ -0,0 +1,117 @@
+package com.spotify.app.perf;
+
+import com.spotify.app.capture.TrafficFormat;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * Upstream that answers with the responses recorded in a capture, including their original
+ * status and latency. Repeated requests cycle through the recorded responses for that key.
+ */
+final class RecordedUpstream implements AutoCloseable {
+
+    private static final byte[] NOT_RECORDED =
+            "{\"error\":{\"status\":404,\"message\":\"Not in capture\"}}".getBytes(StandardCharsets.UTF_8);
+
+    private final Map<String, List<TrafficCapture.UpstreamCall>> responses = new HashMap<>();
+    private final Map<String, AtomicInteger> cursors = new ConcurrentHashMap<>();
+    private final LongAdder misses = new LongAdder();
+    private final boolean recordedLatency;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CatalogPayloads payloads = new CatalogPayloads(11);
+
+    RecordedUpstream(List<TrafficCapture.UpstreamCall> calls, boolean recordedLatency) throws IOException {
+        for (TrafficCapture.UpstreamCall call : calls) {
+            responses.computeIfAbsent(call.key(), key -> new ArrayList<>()).add(call);
+        }
+        this.recordedLatency = recordedLatency;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String apiUrl() {
+        return baseUrl() + "/v1";
+    }
+
+    String tokenUrl() {
+        return baseUrl() + "/api/token";
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            int status;
+            byte[] body;
+
+            if (path.equals("/api/token")) {
+                status = 200;
+                synchronized (payloads) {
+                    body = payloads.toJson(payloads.token());
+                }
+            } else {
+                // Recorded values are already anonymized, so they are matched as they are
+                String key = exchange.getRequestMethod() + ' ' + path.substring("/v1".length()) + '?'
+                        + TrafficFormat.canonicalQuery(TrafficFormat.parseQuery(exchange.getRequestURI().getRawQuery()),
+                        UnaryOperator.identity());
+                List<TrafficCapture.UpstreamCall> recorded = responses.get(key);
+                if (recorded == null) {
+                    misses.increment();
+                    status = 404;
+                    body = NOT_RECORDED;
+                } else {
+                    int next = cursors.computeIfAbsent(key, k -> new AtomicInteger()).getAndIncrement();
+                    TrafficCapture.UpstreamCall call = recorded.get(Math.floorMod(next, recorded.size()));
+                    if (recordedLatency) {
+                        TimeUnit.MICROSECONDS.sleep(call.durationMicros);
+                    }
+                    status = call.status;
+                    body = call.body;
+                }
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+}
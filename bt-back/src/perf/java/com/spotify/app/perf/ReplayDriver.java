@@ -0,0 +1,156 @@
+package com.spotify.app.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.spotify.app.capture.TrafficFormat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replays a traffic capture open-loop: requests are sent at their recorded offsets (divided by
+ * {@code --speed}) regardless of how fast earlier ones complete, while the backend talks to a
+ * {@link RecordedUpstream} serving the responses it originally received.
+ * <pre>
+ * ./gradlew replay -PreplayArgs="--capture=capture/traffic-1700000000000.jsonl.gz --speed=4"
+ * </pre>
+ * Options: {@code --target} (drive a running backend instead of an embedded one),
+ * {@code --user-id} (all requests are sent as this user, default {@code default}),
+ * {@code --upstream-latency=recorded|none}, {@code --include-logout}, {@code --output}.
+ */
+public final class ReplayDriver {
+
+    public static void main(String[] args) throws Exception {
+        Args options = new Args(args);
+        if (!options.has("capture")) {
+            throw new IllegalArgumentException("--capture=<file> is required");
+        }
+        Path capturePath = Path.of(options.get("capture", null));
+        double speed = options.getDouble("speed", 1.0);
+        String userId = options.get("user-id", "default");
+        boolean includeLogout = options.has("include-logout");
+        Path output = Path.of(options.get("output", "build/reports/replay/results.json"));
+
+        TrafficCapture capture = TrafficCapture.read(capturePath);
+        System.out.printf("Loaded %d requests and %d upstream responses from %s%n",
+                capture.requests.size(), capture.upstreamCalls.size(), capturePath);
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        RecordedUpstream upstream = null;
+        EmbeddedBackend backend = null;
+        try {
+            String target = options.get("target", null);
+            if (target == null) {
+                upstream = new RecordedUpstream(capture.upstreamCalls,
+                        !options.get("upstream-latency", "recorded").equals("none"));
+                backend = new EmbeddedBackend(upstream.apiUrl(), upstream.tokenUrl());
+                target = backend.url();
+            }
+            EmbeddedBackend.login(client, target);
+
+            Map<String, LatencyRecorder> byRoute = new TreeMap<>();
+            AtomicInteger statusMismatches = new AtomicInteger();
+            List<CompletableFuture<?>> inFlight = new ArrayList<>();
+
+            long start = System.nanoTime();
+            for (TrafficCapture.Request recorded : capture.requests) {
+                if (!includeLogout && recorded.path.endsWith("/logout")) {
+                    continue;
+                }
+                long due = start + (long) (TimeUnit.MICROSECONDS.toNanos(recorded.offsetMicros) / speed);
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+
+                LatencyRecorder recorder = byRoute.computeIfAbsent(recorded.method + " " + recorded.route,
+                        route -> new LatencyRecorder());
+                long sent = System.nanoTime();
+                inFlight.add(client.sendAsync(toHttpRequest(target, recorded, userId), HttpResponse.BodyHandlers.ofByteArray())
+                        .whenComplete((response, error) -> {
+                            synchronized (recorder) {
+                                recorder.record(System.nanoTime() - sent);
+                                if (error != null || response.statusCode() >= 400) {
+                                    recorder.recordError();
+                                }
+                            }
+                            if (error == null && response.statusCode() != recorded.status) {
+                                statusMismatches.incrementAndGet();
+                            }
+                        }));
+            }
+            CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0])).exceptionally(e -> null).join();
+            long elapsed = System.nanoTime() - start;
+
+            System.out.printf("%-45s %8s %8s %10s %10s %10s%n", "route", "requests", "errors", "p50 ms", "p99 ms", "p999 ms");
+            Map<String, Object> routes = new LinkedHashMap<>();
+            List<LatencyRecorder> all = new ArrayList<>();
+            byRoute.forEach((route, recorder) -> {
+                all.add(recorder);
+                LatencyRecorder.Summary summary = LatencyRecorder.summarize(List.of(recorder), elapsed);
+                System.out.printf("%-45s %8d %8d %10.2f %10.2f %10.2f%n",
+                        route, summary.requests, summary.errors, summary.p50, summary.p99, summary.p999);
+                routes.put(route, summary);
+            });
+            LatencyRecorder.Summary overall = LatencyRecorder.summarize(all, elapsed);
+            System.out.printf("%-45s %8d %8d %10.2f %10.2f %10.2f%n",
+                    "overall", overall.requests, overall.errors, overall.p50, overall.p99, overall.p999);
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("capture", capturePath.toString());
+            report.put("speed", speed);
+            report.put("target", target);
+            report.put("elapsedSeconds", elapsed / 1e9);
+            report.put("overall", overall);
+            report.put("routes", routes);
+            report.put("statusMismatches", statusMismatches.get());
+            if (upstream != null) {
+                report.put("upstreamMisses", upstream.misses());
+            }
+            Files.createDirectories(output.toAbsolutePath().getParent());
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), report);
+            System.out.println("Results written to " + output.toAbsolutePath());
+        } finally {
+            if (backend != null) {
+                backend.close();
+            }
+            if (upstream != null) {
+                upstream.close();
+            }
+        }
+    }
+
+    private static HttpRequest toHttpRequest(String target, TrafficCapture.Request recorded, String userId) {
+        Map<String, List<String>> params = TrafficFormat.parseQuery(recorded.query);
+        if (params.containsKey("userId")) {
+            params.put("userId", List.of(userId));
+        }
+        String query = TrafficFormat.canonicalQuery(params, value -> value);
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(target + recorded.path + (query.isEmpty() ? "" : "?" + query)))
+                .timeout(Duration.ofSeconds(30));
+
+        if (recorded.method.equals("POST")) {
+            // Batch bodies are captured, with search text hashed like GET queries; the only other
+            // POST body the API reads is the auth code
+            String body = recorded.body != null ? recorded.body : "{\"code\":\"replay\"}";
+            request.header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body));
+        } else {
+            request.method(recorded.method, HttpRequest.BodyPublishers.noBody());
+        }
+        return request.build();
+    }
+}
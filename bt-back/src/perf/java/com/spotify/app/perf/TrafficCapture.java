@@ -0,0 +1,95 @@
+package com.spotify.app.perf;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A capture file written by {@code TrafficRecorder}: the backend requests in arrival order and the
+ * upstream responses they caused.
+ */
+final class TrafficCapture {
+
+    final List<Request> requests = new ArrayList<>();
+    final List<UpstreamCall> upstreamCalls = new ArrayList<>();
+
+    static TrafficCapture read(Path file) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        TrafficCapture capture = new TrafficCapture();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                Map<String, Object> event = objectMapper.readValue(line, new TypeReference<Map<String, Object>>() {});
+                switch ((String) event.get("type")) {
+                    case "request":
+                        capture.requests.add(new Request(event));
+                        break;
+                    case "upstream":
+                        capture.upstreamCalls.add(new UpstreamCall(event));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (EOFException e) {
+            // Capture of a process that did not shut down cleanly; everything read so far is usable
+        }
+        capture.requests.sort(Comparator.comparingLong(request -> request.offsetMicros));
+        return capture;
+    }
+
+    static final class Request {
+        final long offsetMicros;
+        final String method;
+        final String path;
+        final String query;
+        final String route;
+        final int status;
+        final String body;   // Batch requests only
+
+        Request(Map<String, Object> event) {
+            this.offsetMicros = ((Number) event.get("t")).longValue();
+            this.method = (String) event.get("method");
+            this.path = (String) event.get("path");
+            this.query = (String) event.get("query");
+            this.route = (String) event.get("route");
+            this.status = ((Number) event.get("status")).intValue();
+            this.body = (String) event.get("body");
+        }
+    }
+
+    static final class UpstreamCall {
+        final long durationMicros;
+        final String method;
+        final String path;
+        final String query;
+        final int status;
+        final byte[] body;
+
+        UpstreamCall(Map<String, Object> event) {
+            this.durationMicros = ((Number) event.get("us")).longValue();
+            this.method = (String) event.get("method");
+            this.path = (String) event.get("path");
+            this.query = (String) event.get("query");
+            this.status = ((Number) event.get("status")).intValue();
+            this.body = ((String) event.get("body")).getBytes(StandardCharsets.UTF_8);
+        }
+
+        String key() {
+            return method + ' ' + path + '?' + query;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.spotify.app.perf;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Embedded stand-in for the Spotify Web API and accounts service. Serves every endpoint
+ * {@code SpotifyService} and {@code TokenService} call with realistically sized payloads,
+ * configurable latency and injected 429/5xx/404 responses, so the backend can be
+ * load-tested offline without touching the real API or its rate limits.
+ *
+ * <pre>
+ * ./gradlew upstreamStub -PstubArgs="--port=9090 --latency=lognormal:40:400 --latency.search=lognormal:80:900 --throttle-rate=0.01"
+ * </pre>
+ */
+public final class UpstreamStub implements AutoCloseable {
+
+    private static final Pattern SPOTIFY_ID = Pattern.compile("[0-9A-Za-z]{22}");
+    private static final int MAX_RENDERED = 10_000;
+
+    private final Settings settings;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<String, byte[]> rendered = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> requestCounts = new ConcurrentHashMap<>();
+
+    public UpstreamStub(Settings settings) throws IOException {
+        this.settings = settings;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), settings.port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public static void main(String[] args) throws Exception {
+        UpstreamStub stub = new UpstreamStub(Settings.fromArgs(new Args(args), 9090));
+        Runtime.getRuntime().addShutdownHook(new Thread(stub::close));
+        System.out.println("Upstream stub listening");
+        System.out.println("  spotify.api-url=" + stub.apiUrl());
+        System.out.println("  spotify.token-url=" + stub.tokenUrl());
+        Thread.currentThread().join();
+    }
+
+    public String apiUrl() {
+        return baseUrl() + "/v1";
+    }
+
+    public String tokenUrl() {
+        return baseUrl() + "/api/token";
+    }
+
+    /**
+     * Requests served so far, keyed by route name.
+     */
+    public Map<String, Long> requestCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        requestCounts.forEach((route, count) -> counts.put(route, count.sum()));
+        return counts;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            Response response = respond(exchange);
+            requestCounts.computeIfAbsent(response.route, r -> new LongAdder()).increment();
+
+            long delay = settings.latencyFor(response.route).sampleMicros();
+            if (delay > 0) {
+                TimeUnit.MICROSECONDS.sleep(delay);
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            if (response.retryAfterSeconds > 0) {
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(response.retryAfterSeconds));
+            }
+            exchange.sendResponseHeaders(response.status, response.body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response.body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Response respond(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        if (path.equals("/api/token")) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                return error("token", 405, "Method not allowed");
+            }
+            return new Response("token", 200, render("token", "", 0, 0, p -> p.token()));
+        }
+        if (!path.startsWith("/v1/") || !exchange.getRequestMethod().equals("GET")) {
+            return error("unknown", 404, "Service not found");
+        }
+
+        String[] segments = path.substring("/v1/".length()).split("/");
+        String route = routeOf(segments);
+        if (route == null) {
+            return error("unknown", 404, "Service not found");
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < settings.throttleRate) {
+            Response throttled = error(route, 429, "API rate limit exceeded");
+            throttled.retryAfterSeconds = settings.retryAfterSeconds;
+            return throttled;
+        }
+        if (random.nextDouble() < settings.errorRate) {
+            return error(route, random.nextBoolean() ? 500 : 503, "Server error");
+        }
+
+        String id = segments.length > 1 ? segments[1] : null;
+        if (id != null) {
+            if (!SPOTIFY_ID.matcher(id).matches()) {
+                return error(route, 400, "Invalid base62 id");
+            }
+            // Deterministic per id, so the same id stays missing the way stale links do
+            if (Math.floorMod(id.hashCode(), 10_000) < settings.notFoundRate * 10_000) {
+                return error(route, 404, "Resource not found");
+            }
+        }
+
+        int limit = intParam(query, "limit", 20);
+        int offset = intParam(query, "offset", 0);
+
+        switch (route) {
+            case "me":
+                return new Response(route, 200, render(route, "", 0, 0, p -> p.currentUser("stub-user")));
+            case "top-artists":
+                String timeRange = query.getOrDefault("time_range", "medium_term");
+                return new Response(route, 200, render(route, timeRange, limit, offset,
+                        p -> p.topArtists(timeRange, limit, offset)));
+            case "artist":
+                return new Response(route, 200, render(route, id, 0, 0, p -> p.artist(id)));
+            case "artist-albums":
+                return new Response(route, 200, render(route, id, limit, offset,
+                        p -> p.artistAlbums(id, limit, offset)));
+            case "top-tracks":
+                return new Response(route, 200, render(route, id, 0, 0, p -> p.topTracks(10)));
+            case "related-artists":
+                return new Response(route, 200, render(route, id, 0, 0, p -> p.relatedArtists(20)));
+            case "album":
+                return new Response(route, 200, render(route, id, 0, 0,
+                        p -> p.album(id, 8 + Math.floorMod(id.hashCode(), 12))));
+            default:
+                String q = query.getOrDefault("q", "");
+                List<String> types = Arrays.asList(query.getOrDefault("type", "artist,album,track").split(","));
+                return new Response(route, 200, render(route, q + types, limit, offset, p -> {
+                    Map<String, Object> result = p.search(q, limit, offset);
+                    result.keySet().removeIf(key -> !types.contains(key.substring(0, key.length() - 1)));
+                    return result;
+                }));
+        }
+    }
+
+    private static String routeOf(String[] segments) {
+        switch (segments[0]) {
+            case "me":
+                if (segments.length == 1) {
+                    return "me";
+                }
+                return segments.length == 3 && segments[1].equals("top") && segments[2].equals("artists")
+                        ? "top-artists" : null;
+            case "artists":
+                if (segments.length == 2) {
+                    return "artist";
+                }
+                if (segments.length == 3) {
+                    switch (segments[2]) {
+                        case "albums":
+                            return "artist-albums";
+                        case "top-tracks":
+                            return "top-tracks";
+                        case "related-artists":
+                            return "related-artists";
+                        default:
+                            return null;
+                    }
+                }
+                return null;
+            case "albums":
+                return segments.length == 2 ? "album" : null;
+            case "search":
+                return segments.length == 1 ? "search" : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Payloads are rendered once per distinct request and reused, so stub CPU stays out of the measurements.
+     */
+    private byte[] render(String route, String key, int limit, int offset,
+                          Function<CatalogPayloads, Object> generator) {
+        String cacheKey = route + '|' + key + '|' + limit + '|' + offset;
+        byte[] body = rendered.get(cacheKey);
+        if (body == null) {
+            CatalogPayloads payloads = new CatalogPayloads(cacheKey.hashCode());
+            body = payloads.toJson(generator.apply(payloads));
+            if (rendered.size() < MAX_RENDERED) {
+                rendered.put(cacheKey, body);
+            }
+        }
+        return body;
+    }
+
+    private static Response error(String route, int status, String message) {
+        String body = "{\"error\":{\"status\":" + status + ",\"message\":\"" + message + "\"}}";
+        return new Response(route, status, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static int intParam(Map<String, String> query, String name, int defaultValue) {
+        try {
+            return query.containsKey(name) ? Integer.parseInt(query.get(name)) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static final class Response {
+        final String route;
+        final int status;
+        final byte[] body;
+        long retryAfterSeconds;
+
+        Response(String route, int status, byte[] body) {
+            this.route = route;
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Stub behaviour. Defaults are a well behaved upstream with no delay, which is what benchmarks want.
+     */
+    public static final class Settings {
+
+        private int port;
+        private LatencyDistribution latency = LatencyDistribution.fixed(0);
+        private final Map<String, LatencyDistribution> routeLatency = new HashMap<>();
+        private double errorRate;
+        private double throttleRate;
+        private double notFoundRate;
+        private long retryAfterSeconds = 1;
+
+        public static Settings defaults() {
+            return new Settings();
+        }
+
+        static Settings fromArgs(Args args, int defaultPort) {
+            Settings settings = new Settings();
+            settings.port = args.getInt("port", defaultPort);
+            settings.latency = LatencyDistribution.parse(args.get("latency", "lognormal:40:400"));
+            args.withPrefix("latency").forEach((route, spec) ->
+                    settings.routeLatency.put(route, LatencyDistribution.parse(spec)));
+            settings.errorRate = args.getDouble("error-rate", 0);
+            settings.throttleRate = args.getDouble("throttle-rate", 0);
+            settings.notFoundRate = args.getDouble("not-found-rate", 0);
+            settings.retryAfterSeconds = args.getInt("retry-after", 1);
+            return settings;
+        }
+
+        LatencyDistribution latencyFor(String route) {
+            return routeLatency.getOrDefault(route, latency);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.spotify.app.cache;
+
+import com.spotify.app.config.NegativeCacheConfig;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NegativeCacheTest {
+
+    private static final long MINUTE = Duration.ofMinutes(1).toNanos();
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void remembersRecordedIdsPerType() {
+        NegativeCache cache = cache(100);
+        cache.recordMissing("artist", "a");
+
+        assertThat(cache.isKnownMissing("artist", "a")).isTrue();
+        assertThat(cache.isKnownMissing("album", "a")).isFalse();
+        assertThat(cache.isKnownMissing("artist", "b")).isFalse();
+    }
+
+    @Test
+    void idsSurviveOneRotationAndExpireWithinTheTtl() {
+        // ttl 10 minutes: generations rotate every 5
+        NegativeCache cache = cache(100);
+        cache.recordMissing("artist", "early");
+        clock.set(4 * MINUTE);
+        cache.recordMissing("artist", "late");
+
+        clock.set(6 * MINUTE);
+        assertThat(cache.isKnownMissing("artist", "early")).isTrue();
+        assertThat(cache.isKnownMissing("artist", "late")).isTrue();
+
+        clock.set(10 * MINUTE);
+        assertThat(cache.isKnownMissing("artist", "early")).isFalse();
+        assertThat(cache.isKnownMissing("artist", "late")).isFalse();
+    }
+
+    @Test
+    void idsRecordedAfterARotationLiveIntoTheNextGeneration() {
+        NegativeCache cache = cache(100);
+        clock.set(6 * MINUTE);
+        cache.recordMissing("artist", "a");
+
+        clock.set(11 * MINUTE);
+        assertThat(cache.isKnownMissing("artist", "a")).isTrue();
+        clock.set(15 * MINUTE);
+        assertThat(cache.isKnownMissing("artist", "a")).isFalse();
+    }
+
+    @Test
+    void lateRotationStaysOnTheHalfTtlGrid() {
+        NegativeCache cache = cache(100);
+        cache.recordMissing("artist", "a");
+
+        // First look after the 5 minute mark rotates as of minute 5, so "a" is gone at minute 10
+        clock.set(9 * MINUTE);
+        assertThat(cache.isKnownMissing("artist", "a")).isTrue();
+        clock.set(10 * MINUTE);
+        assertThat(cache.isKnownMissing("artist", "a")).isFalse();
+    }
+
+    @Test
+    void nothingSurvivesAWholeTtlWithoutLookups() {
+        NegativeCache cache = cache(100);
+        cache.recordMissing("artist", "a");
+
+        clock.set(25 * MINUTE);
+
+        assertThat(cache.isKnownMissing("artist", "a")).isFalse();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void fullGenerationRotatesEarlyAndBoundsTheSize() {
+        NegativeCache cache = cache(10);
+        for (int i = 0; i < 25; i++) {
+            cache.recordMissing("artist", "id" + i);
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(20);
+        assertThat(cache.isKnownMissing("artist", "id24")).isTrue();
+        assertThat(cache.isKnownMissing("artist", "id15")).isTrue();
+        assertThat(cache.isKnownMissing("artist", "id0")).isFalse();
+    }
+
+    @Test
+    void disabledCacheRemembersNothing() {
+        NegativeCacheConfig config = config(100);
+        config.setEnabled(false);
+        NegativeCache cache = new NegativeCache(config, clock::get);
+        cache.recordMissing("artist", "a");
+
+        assertThat(cache.isKnownMissing("artist", "a")).isFalse();
+        assertThat(cache.size()).isZero();
+    }
+
+    private NegativeCache cache(int maxIds) {
+        return new NegativeCache(config(maxIds), clock::get);
+    }
+
+    private static NegativeCacheConfig config(int maxIds) {
+        NegativeCacheConfig config = new NegativeCacheConfig();
+        config.setTtl(Duration.ofMinutes(10));
+        config.setMaxIds(maxIds);
+        return config;
+    }
+}
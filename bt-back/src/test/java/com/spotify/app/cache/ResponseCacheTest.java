@@ -0,0 +1,138 @@
+package com.spotify.app.cache;
+
+import com.spotify.app.config.CacheConfig;
+import com.spotify.app.service.RequestCancellation;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResponseCacheTest {
+
+    private static final Duration TTL = Duration.ofMinutes(1);
+
+    private final ResponseCache cache = new ResponseCache(new CacheConfig());
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> cache.get("k", TTL, () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return "value";
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> cache.get("k", TTL, () -> {
+            loads.incrementAndGet();
+            return "other";
+        }));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void cancelledLoaderHandsTheLoadToTheNextWaiter() throws Exception {
+        RequestCancellation cancelled = new RequestCancellation();
+        CountDownLatch loading = new CountDownLatch(1);
+        AtomicInteger waiterLoads = new AtomicInteger();
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> cancelled.call(
+                () -> cache.get("k", TTL, () -> {
+                    loading.countDown();
+                    return RequestCancellation.await(Mono.<String>never());
+                })));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> waiter = CompletableFuture.supplyAsync(() -> new RequestCancellation().call(
+                () -> cache.get("k", TTL, () -> {
+                    waiterLoads.incrementAndGet();
+                    return "loaded by waiter";
+                })));
+        Thread.sleep(100);
+        cancelled.cancel();
+
+        assertThat(waiter.get(5, TimeUnit.SECONDS)).isEqualTo("loaded by waiter");
+        assertThat(waiterLoads).hasValue(1);
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(CancellationException.class);
+        assertThat(cache.get("k", TTL, () -> "reloaded")).isEqualTo("loaded by waiter");
+    }
+
+    @Test
+    void cancelledWaiterLeavesTheSharedLoadRunning() throws Exception {
+        RequestCancellation cancelled = new RequestCancellation();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> loader = CompletableFuture.supplyAsync(() -> cache.get("k", TTL, () -> {
+            loading.countDown();
+            await(release);
+            return "value";
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> waiter = CompletableFuture.supplyAsync(() -> cancelled.call(
+                () -> cache.get("k", TTL, () -> "other")));
+        Thread.sleep(100);
+        cancelled.cancel();
+
+        assertThatThrownBy(() -> waiter.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(CancellationException.class);
+        release.countDown();
+        assertThat(loader.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+    }
+
+    @Test
+    void invalidateDropsMatchingEntries() {
+        cache.get("TOP_ARTISTS|default|short_term|10", TTL, () -> "top");
+        cache.get("ARTIST|abc", TTL, () -> "artist");
+
+        cache.invalidate(key -> key.startsWith("TOP_ARTISTS|"));
+
+        assertThat(cache.contains("TOP_ARTISTS|default|short_term|10")).isFalse();
+        assertThat(cache.contains("ARTIST|abc")).isTrue();
+        assertThat(cache.get("TOP_ARTISTS|default|short_term|10", TTL, () -> "fresh")).isEqualTo("fresh");
+    }
+
+    @Test
+    void loadInFlightWhenInvalidatedIsNotStored() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> stale = CompletableFuture.supplyAsync(() -> cache.get("k", TTL, () -> {
+            loading.countDown();
+            await(release);
+            return "stale";
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        cache.invalidate("k"::equals);
+
+        // Does not join the detached load
+        assertThat(cache.contains("k")).isFalse();
+        assertThat(cache.get("k", TTL, () -> "fresh")).isEqualTo("fresh");
+        release.countDown();
+
+        assertThat(stale.get(5, TimeUnit.SECONDS)).isEqualTo("stale");
+        assertThat(cache.get("k", TTL, () -> "other")).isEqualTo("fresh");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.spotify.app.capture;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotify.app.config.CaptureConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrafficRecorderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void searchTextNeverReachesTheCapture() throws Exception {
+        CaptureConfig config = new CaptureConfig();
+        config.setDirectory(dir.toString());
+        config.setSalt("test");
+        TrafficRecorder recorder = new TrafficRecorder(config, new ObjectMapper());
+
+        String link = "https://api.spotify.com/v1/search?query=taylor+swift&type=artist&offset=%d&limit=10";
+        String body = """
+                {"artists":{"href":"%s","next":"%s","previous":null,"items":[{"name":"Taylor Swift"}]}}
+                """.formatted(link.formatted(0), link.formatted(10));
+        recorder.recordRequest("GET", "/api/search", Map.of("q", List.of("taylor swift")), "search", 200,
+                System.nanoTime(), null);
+        recorder.recordRequest("POST", "/api/batch", Map.of(), "/api/batch", 200, System.nanoTime(),
+                "{\"requests\":[{\"id\":\"1\",\"path\":\"/api/search?q=taylor%20swift&type=artist\"}]}");
+        recorder.recordUpstream("GET", "/search", "q=taylor%20swift&type=artist&limit=10", 200, body, System.nanoTime());
+        recorder.close();
+
+        String captured = read(single(dir));
+        String hashed = recorder.anonymize("taylor swift");
+        assertThat(captured).doesNotContain("taylor+swift", "taylor%20swift", "q=taylor", "query=taylor");
+        assertThat(captured).contains("query=" + hashed, "offset=10", "Taylor Swift");
+        assertThat(captured).contains("/api/search?q=" + hashed + "&type=artist");
+    }
+
+    private static Path single(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.findFirst().orElseThrow();
+        }
+    }
+
+    private static String read(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.spotify.app.catalog;
+
+import com.spotify.app.model.Album;
+import com.spotify.app.model.Artist;
+import com.spotify.app.model.MarketSet;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogCodecTest {
+
+    private final CatalogCodec codec = new CatalogCodec(new StringTable(1 << 10));
+
+    @Test
+    void artistRoundTripsEveryField() {
+        Artist artist = CatalogFixtures.artist("0TnOYISbd1XYRBk9myaseg", "Pitbull");
+
+        assertThat(roundTrip(artist)).isEqualTo(artist);
+    }
+
+    @Test
+    void albumRoundTripsEveryFieldIncludingTracks() {
+        Album album = CatalogFixtures.album("4aawyAB9vmqN3uQ7FjRGTy", 3);
+
+        Album decoded = roundTrip(album);
+
+        assertThat(decoded).isEqualTo(album);
+        assertThat(decoded.getMarkets().unknownCodes()).containsExactly("XX");
+        assertThat(decoded.getTracks().getItems().get(0).getAlbum()).isEqualTo(album.getTracks().getItems().get(0).getAlbum());
+    }
+
+    @Test
+    void nullsAndEmptiesStayDistinct() {
+        Album album = new Album();
+        album.setId("4aawyAB9vmqN3uQ7FjRGTy");
+        album.setGenres(List.of());
+        album.setArtists(List.of());
+        album.setExternalUrls(Map.of());
+        album.setMarkets(MarketSet.of(List.of()));
+        album.setTracks(new Album.Tracks());
+
+        Album decoded = roundTrip(album);
+
+        assertThat(decoded).isEqualTo(album);
+        assertThat(decoded.getImages()).isNull();
+        assertThat(decoded.getTracks().getItems()).isNull();
+    }
+
+    @Test
+    void linksNotEndingInTheIdAndNegativeNumbersSurvive() {
+        Artist artist = CatalogFixtures.artist("0TnOYISbd1XYRBk9myaseg", "Pitbull");
+        artist.setUri("spotify:artist:somethingElse");
+        artist.setHref("https://example.com/artist");
+        artist.setPopularity(-1);
+        artist.getFollowers().setTotal(Integer.MIN_VALUE);
+
+        assertThat(roundTrip(artist)).isEqualTo(artist);
+    }
+
+    @Test
+    void stringsBeyondAFullTableAreStoredInline() {
+        CatalogCodec tiny = new CatalogCodec(new StringTable(1));
+        Album album = CatalogFixtures.album("4aawyAB9vmqN3uQ7FjRGTy", 2);
+
+        BinaryWriter out = new BinaryWriter();
+        tiny.writeAlbum(out, album);
+        Album decoded = tiny.readAlbum(reader(out));
+
+        assertThat(decoded).isEqualTo(album);
+    }
+
+    @Test
+    void releaseDatesAndLabelsAreNotInterned() {
+        StringTable strings = new StringTable(1 << 10);
+        CatalogCodec counting = new CatalogCodec(strings);
+        Album first = CatalogFixtures.album("4aawyAB9vmqN3uQ7FjRGTy", 2);
+        counting.writeAlbum(new BinaryWriter(), first);
+        int interned = strings.size();
+
+        Album second = CatalogFixtures.album("4aawyAB9vmqN3uQ7FjRGTy", 2);
+        second.setReleaseDate("1999-12-31");
+        second.setLabel("Some Independent Label");
+        BinaryWriter out = new BinaryWriter();
+        counting.writeAlbum(out, second);
+
+        assertThat(strings.size()).isEqualTo(interned);
+        assertThat(counting.readAlbum(reader(out))).isEqualTo(second);
+    }
+
+    private Artist roundTrip(Artist artist) {
+        BinaryWriter out = new BinaryWriter();
+        codec.writeArtist(out, artist);
+        return codec.readArtist(reader(out));
+    }
+
+    private Album roundTrip(Album album) {
+        BinaryWriter out = new BinaryWriter();
+        codec.writeAlbum(out, album);
+        return codec.readAlbum(reader(out));
+    }
+
+    private static BinaryReader reader(BinaryWriter out) {
+        return new BinaryReader(ByteBuffer.wrap(Arrays.copyOf(out.buffer(), out.length())), 0);
+    }
+}
@@ -0,0 +1,104 @@
+package com.spotify.app.catalog;
+
+import com.spotify.app.model.Album;
+import com.spotify.app.model.Artist;
+import com.spotify.app.model.MarketSet;
+import com.spotify.app.model.Track;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Entities with every field set, the way Spotify returns them.
+ */
+final class CatalogFixtures {
+
+    private CatalogFixtures() {
+    }
+
+    static Artist artist(String id, String name) {
+        Artist artist = new Artist();
+        artist.setId(id);
+        artist.setName(name);
+        artist.setType("artist");
+        artist.setUri("spotify:artist:" + id);
+        artist.setHref("https://api.spotify.com/v1/artists/" + id);
+        artist.setExternalUrls(Map.of("spotify", "https://open.spotify.com/artist/" + id));
+        artist.setGenres(List.of("dance pop", "miami hip hop"));
+        artist.setPopularity(83);
+        Artist.Followers followers = new Artist.Followers();
+        followers.setTotal(10_437_000);
+        artist.setFollowers(followers);
+        artist.setImages(List.of(image(640), image(160)));
+        return artist;
+    }
+
+    static Album album(String id, int trackCount) {
+        Album album = new Album();
+        album.setId(id);
+        album.setName("Global Warming");
+        album.setType("album");
+        album.setUri("spotify:album:" + id);
+        album.setHref("https://api.spotify.com/v1/albums/" + id);
+        album.setExternalUrls(Map.of("spotify", "https://open.spotify.com/album/" + id));
+        album.setAlbumType("album");
+        album.setTotalTracks(trackCount);
+        album.setReleaseDate("2012-11-16");
+        album.setReleaseDatePrecision("day");
+        album.setGenres(List.of());
+        album.setLabel("Mr.305/Polo Grounds Music/RCA Records");
+        album.setPopularity(57);
+        album.setArtists(List.of(artist("0TnOYISbd1XYRBk9myaseg", "Pitbull")));
+        album.setImages(List.of(image(300)));
+        album.setMarkets(MarketSet.of(List.of("US", "GB", "XX", "SE")));
+
+        Album.Tracks tracks = new Album.Tracks();
+        tracks.setHref("https://api.spotify.com/v1/albums/" + id + "/tracks?offset=0&limit=50");
+        tracks.setLimit(50);
+        tracks.setOffset(0);
+        tracks.setTotal(trackCount);
+        tracks.setItems(IntStream.range(0, trackCount)
+                .mapToObj(i -> track(String.format("6OmhkSOpvYBokMKQxpIGx%d", i), i + 1, album))
+                .toList());
+        album.setTracks(tracks);
+        return album;
+    }
+
+    static Track track(String id, int number, Album album) {
+        Track track = new Track();
+        track.setId(id);
+        track.setName("Track " + number);
+        track.setType("track");
+        track.setUri("spotify:track:" + id);
+        track.setHref("https://api.spotify.com/v1/tracks/" + id);
+        track.setExternalUrls(Map.of("spotify", "https://open.spotify.com/track/" + id));
+        track.setPreviewUrl(number % 2 == 0 ? null : "https://p.scdn.co/mp3-preview/" + id);
+        track.setTrackNumber(number);
+        track.setDurationMs(200_000 + number);
+        track.setExplicit(number % 2 == 0);
+        track.setLocal(false);
+        track.setPopularity(number == 1 ? null : 40 + number);
+        track.setIsPlayable(number % 3 == 0 ? null : Boolean.TRUE);
+        track.setArtists(List.of(artist("0TnOYISbd1XYRBk9myaseg", "Pitbull")));
+        if (number == 1) {
+            // Search results carry a simplified album on each track
+            Album simplified = new Album();
+            simplified.setId(album.getId());
+            simplified.setName(album.getName());
+            simplified.setUri(album.getUri());
+            track.setAlbum(simplified);
+        }
+        track.setAvailableMarkets(MarketSet.of(List.of("US", "CA")));
+        track.setDiscNumber(1);
+        return track;
+    }
+
+    private static Artist.Image image(int size) {
+        Artist.Image image = new Artist.Image();
+        image.setUrl("https://i.scdn.co/image/ab67616d0000b273" + size);
+        image.setHeight(size);
+        image.setWidth(size);
+        return image;
+    }
+}
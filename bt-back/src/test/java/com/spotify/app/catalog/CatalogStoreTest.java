@@ -0,0 +1,155 @@
+package com.spotify.app.catalog;
+
+import com.spotify.app.config.CatalogStoreConfig;
+import com.spotify.app.model.Album;
+import com.spotify.app.model.Artist;
+import com.spotify.app.service.UpstreamRoute;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CatalogStoreTest {
+
+    private static final Duration TTL = Duration.ofMinutes(10);
+    private static final int SLAB_BYTES = 16 * 1024;
+
+    @Test
+    void storesAndDecodesArtistsAndAlbums() {
+        CatalogStore store = store(4);
+        Artist artist = CatalogFixtures.artist("0TnOYISbd1XYRBk9myaseg", "Pitbull");
+        Album album = CatalogFixtures.album("4aawyAB9vmqN3uQ7FjRGTy", 3);
+
+        assertThat(store.put(artist, TTL)).isSameAs(artist);
+        store.put(album, TTL);
+
+        assertThat(store.get(Artist.class, artist.getId())).isEqualTo(artist).isNotSameAs(artist);
+        assertThat(store.get(Album.class, album.getId())).isEqualTo(album);
+        assertThat(store.contains(Album.class, album.getId())).isTrue();
+        // Kinds are indexed separately
+        assertThat(store.get(Album.class, artist.getId())).isNull();
+        assertThat(store.size()).isEqualTo(2);
+    }
+
+    @Test
+    void onlyArtistAndAlbumRoutesAreStoredWhenEnabled() {
+        CatalogStore store = store(4);
+
+        assertThat(store.stores(UpstreamRoute.ARTIST)).isTrue();
+        assertThat(store.stores(UpstreamRoute.ALBUM)).isTrue();
+        assertThat(store.stores(UpstreamRoute.ARTIST_ALBUMS)).isFalse();
+        assertThat(new CatalogStore(new CatalogStoreConfig()).stores(UpstreamRoute.ARTIST)).isFalse();
+        assertThatThrownBy(() -> store.get(String.class, "x")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void expiredEntitiesAreNotReturned() {
+        CatalogStore store = store(4);
+        Artist artist = CatalogFixtures.artist("0TnOYISbd1XYRBk9myaseg", "Pitbull");
+
+        store.put(artist, Duration.ofMillis(-1));
+
+        assertThat(store.get(Artist.class, artist.getId())).isNull();
+        assertThat(store.contains(Artist.class, artist.getId())).isFalse();
+    }
+
+    @Test
+    void replacingAnEntityKeepsOneIndexEntry() {
+        CatalogStore store = store(4);
+        Artist artist = CatalogFixtures.artist("0TnOYISbd1XYRBk9myaseg", "Pitbull");
+        store.put(artist, TTL);
+        artist.setPopularity(99);
+        store.put(artist, TTL);
+
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.get(Artist.class, artist.getId()).getPopularity()).isEqualTo(99);
+    }
+
+    @Test
+    void entitiesShareSlabsUntilTheyFill() {
+        CatalogStore store = store(4);
+
+        for (int i = 0; i < 5; i++) {
+            store.put(CatalogFixtures.artist(id(i), "Artist " + i), TTL);
+        }
+        assertThat(store.allocatedBytes()).isEqualTo(SLAB_BYTES);
+
+        int stored = 5;
+        while (store.allocatedBytes() == SLAB_BYTES) {
+            store.put(CatalogFixtures.artist(id(stored), "Artist " + stored), TTL);
+            stored++;
+        }
+        assertThat(store.allocatedBytes()).isEqualTo(2L * SLAB_BYTES);
+        for (int i = 0; i < stored; i++) {
+            assertThat(store.get(Artist.class, id(i))).as("artist %d", i).isNotNull();
+        }
+    }
+
+    @Test
+    void oldestSlabIsDroppedBeyondMaxBytes() {
+        CatalogStore store = store(2);
+        int stored = 0;
+        while (store.allocatedBytes() < 2L * SLAB_BYTES) {
+            store.put(CatalogFixtures.artist(id(stored), "Artist " + stored), TTL);
+            stored++;
+        }
+        int beforeEviction = store.size();
+        int perSlab = stored - 1;
+
+        // Filling the second slab and starting a third drops the first
+        for (int i = 0; i < perSlab; i++) {
+            store.put(CatalogFixtures.artist(id(stored), "Artist " + stored), TTL);
+            stored++;
+        }
+
+        assertThat(store.allocatedBytes()).isEqualTo(2L * SLAB_BYTES);
+        assertThat(store.get(Artist.class, id(0))).isNull();
+        assertThat(store.get(Artist.class, id(stored - 1))).isNotNull();
+        assertThat(store.size()).isLessThan(stored).isGreaterThanOrEqualTo(beforeEviction - perSlab);
+    }
+
+    @Test
+    void entitiesLargerThanASlabAreNotStored() {
+        CatalogStore store = store(4);
+        Album album = CatalogFixtures.album("4aawyAB9vmqN3uQ7FjRGTy", 500);
+
+        assertThat(store.put(album, TTL)).isSameAs(album);
+
+        assertThat(store.get(Album.class, album.getId())).isNull();
+        assertThat(store.allocatedBytes()).isZero();
+    }
+
+    @Test
+    void indexGrowsPastItsInitialCapacity() {
+        CatalogStoreConfig config = config(64);
+        config.setInitialEntities(4);
+        CatalogStore store = new CatalogStore(config);
+
+        for (int i = 0; i < 1_000; i++) {
+            store.put(CatalogFixtures.artist(id(i), "Artist " + i), TTL);
+        }
+
+        assertThat(store.size()).isEqualTo(1_000);
+        assertThat(store.get(Artist.class, id(0)).getName()).isEqualTo("Artist 0");
+        assertThat(store.get(Artist.class, id(999)).getName()).isEqualTo("Artist 999");
+    }
+
+    private static CatalogStore store(int maxSlabs) {
+        return new CatalogStore(config(maxSlabs));
+    }
+
+    private static CatalogStoreConfig config(int maxSlabs) {
+        CatalogStoreConfig config = new CatalogStoreConfig();
+        config.setEnabled(true);
+        config.setSlabBytes(SLAB_BYTES);
+        config.setMaxBytes((long) maxSlabs * SLAB_BYTES);
+        return config;
+    }
+
+    // 22 characters, like a Spotify id
+    private static String id(int n) {
+        return String.format("%022d", n);
+    }
+}
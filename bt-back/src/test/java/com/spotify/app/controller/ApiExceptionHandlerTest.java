@@ -0,0 +1,70 @@
+package com.spotify.app.controller;
+
+import com.spotify.app.config.ErrorLogConfig;
+import com.spotify.app.service.LogSampler;
+import com.spotify.app.service.RateLimitedException;
+import com.spotify.app.service.UpstreamException;
+import com.spotify.app.service.UpstreamRoute;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ApiExceptionHandlerTest {
+
+    private final ApiExceptionHandler handler = new ApiExceptionHandler(new LogSampler(new ErrorLogConfig()));
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/artists/x");
+
+    @Test
+    void upstreamFailuresKeepTheirStatusAndBody() {
+        UpstreamException e = new UpstreamException(HttpStatus.BAD_GATEWAY, "upstream_error", "Failed to fetch artist",
+                UpstreamRoute.ARTIST, 503, "unavailable");
+
+        ResponseEntity<Map<String, Object>> response = handler.handleUpstream(e, request);
+
+        assertThat(response.getStatusCode().value()).isEqualTo(502);
+        assertThat(response.getBody()).isEqualTo(e.body());
+        assertThat(response.getHeaders().containsKey(HttpHeaders.RETRY_AFTER)).isFalse();
+    }
+
+    @Test
+    void rateLimitedPassesRetryAfterOn() {
+        ResponseEntity<Map<String, Object>> response = handler.handleUpstream(
+                new RateLimitedException("Failed", UpstreamRoute.SEARCH, Duration.ofSeconds(30), null), request);
+
+        assertThat(response.getStatusCode().value()).isEqualTo(429);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("30");
+    }
+
+    @Test
+    void rateLimitedWithoutRetryAfterSendsNoHeader() {
+        ResponseEntity<Map<String, Object>> response = handler.handleUpstream(
+                new RateLimitedException("Failed", UpstreamRoute.SEARCH, Duration.ZERO, null), request);
+
+        assertThat(response.getStatusCode().value()).isEqualTo(429);
+        assertThat(response.getHeaders().containsKey(HttpHeaders.RETRY_AFTER)).isFalse();
+    }
+
+    @Test
+    void invalidArgumentsAnswer400() {
+        ResponseEntity<Map<String, Object>> response = handler.handleBadRequest(
+                new IllegalArgumentException("Invalid artist id: x"), request);
+
+        assertThat(response.getStatusCode().value()).isEqualTo(400);
+        assertThat(response.getBody()).containsEntry("error", "bad_request").containsEntry("message", "Invalid artist id: x");
+    }
+
+    @Test
+    void unexpectedFailuresAnswer500() {
+        ResponseEntity<Map<String, Object>> response = handler.handleUnexpected(new IllegalStateException("boom"), request);
+
+        assertThat(response.getStatusCode().value()).isEqualTo(500);
+        assertThat(response.getBody()).containsEntry("error", "internal_error");
+    }
+}
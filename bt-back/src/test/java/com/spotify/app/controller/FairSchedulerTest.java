@@ -0,0 +1,214 @@
+package com.spotify.app.controller;
+
+import com.spotify.app.config.RequestConfig;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class FairSchedulerTest {
+
+    private final List<String> order = new ArrayList<>();
+
+    @Test
+    void usersTakeTurns() throws Exception {
+        FairScheduler scheduler = new FairScheduler(config());
+        offer(scheduler, "a", 1, "a1", "a2", "a3");
+        offer(scheduler, "b", 1, "b1", "b2", "b3");
+
+        runNext(scheduler, 6);
+
+        assertThat(order).containsExactly("a1", "b1", "a2", "b2", "a3", "b3");
+    }
+
+    @Test
+    void weightBuysALargerShare() throws Exception {
+        RequestConfig config = config();
+        config.setWeights(Map.of("vip", 2));
+        FairScheduler scheduler = new FairScheduler(config);
+        offer(scheduler, "vip", 1, "vip1", "vip2", "vip3", "vip4");
+        offer(scheduler, "a", 1, "a1", "a2");
+
+        runNext(scheduler, 6);
+
+        assertThat(order).containsExactly("vip1", "vip2", "a1", "vip3", "vip4", "a2");
+    }
+
+    @Test
+    void weightBelowOneCountsAsOne() {
+        RequestConfig config = config();
+        config.setWeights(Map.of("zero", 0, "negative", -3));
+        FairScheduler scheduler = new FairScheduler(config);
+        offer(scheduler, "zero", 1, "z1", "z2");
+        offer(scheduler, "negative", 1, "n1", "n2");
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> runNext(scheduler, 4));
+
+        assertThat(order).containsExactly("z1", "n1", "z2", "n2");
+    }
+
+    @Test
+    void batchWaitsUntilItsDeficitCoversItsCost() throws Exception {
+        FairScheduler scheduler = new FairScheduler(config());
+        offer(scheduler, "heavy", 3, "batch");
+        offer(scheduler, "a", 1, "a1", "a2", "a3");
+
+        runNext(scheduler, 4);
+
+        assertThat(order).containsExactly("a1", "a2", "batch", "a3");
+    }
+
+    @Test
+    void userAtItsRunningCapSitsOut() throws Exception {
+        RequestConfig config = config();
+        config.setMaxRunningPerUser(2);
+        FairScheduler scheduler = new FairScheduler(config);
+        offer(scheduler, "a", 1, "a1", "a2", "a3");
+
+        FairScheduler.Task first = runNext(scheduler, 2).get(0);
+        CompletableFuture<FairScheduler.Task> third = CompletableFuture.supplyAsync(() -> next(scheduler));
+        Thread.sleep(100);
+        assertThat(third).isNotDone();
+
+        scheduler.done(first, 1_000_000);
+        third.get(5, TimeUnit.SECONDS).work.run();
+        assertThat(order).containsExactly("a1", "a2", "a3");
+    }
+
+    @Test
+    void fullUserQueueAnswersWithRetryAfter() {
+        RequestConfig config = config();
+        config.setMaxRunningPerUser(1);
+        config.setMaxQueuedPerUser(2);
+        FairScheduler scheduler = new FairScheduler(config);
+        offer(scheduler, "a", 1, "a1", "a2");
+
+        assertThatThrownBy(() -> scheduler.offer("a", 1, () -> { }))
+                .isInstanceOfSatisfying(FairScheduler.UserLimitException.class,
+                        e -> assertThat(e.getRetryAfter()).isEqualTo(Duration.ofSeconds(1)));
+        // Other users are not affected
+        scheduler.offer("b", 1, () -> { });
+    }
+
+    @Test
+    void fullQueueRejectsEveryone() {
+        RequestConfig config = config();
+        config.setQueueCapacity(2);
+        FairScheduler scheduler = new FairScheduler(config);
+        offer(scheduler, "a", 1, "a1");
+        offer(scheduler, "b", 1, "b1");
+
+        assertThatThrownBy(() -> scheduler.offer("c", 1, () -> { }))
+                .isExactlyInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    void perUserCapsDefaultToTheGlobalLimits() {
+        RequestConfig config = config();
+        config.setQueueCapacity(40);
+        FairScheduler scheduler = new FairScheduler(config);
+        for (int i = 0; i < 40; i++) {
+            scheduler.offer("default", 1, () -> { });
+        }
+
+        assertThatThrownBy(() -> scheduler.offer("default", 1, () -> { }))
+                .isNotInstanceOf(FairScheduler.UserLimitException.class)
+                .isInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    void cancellingAQueuedTaskDropsIt() throws Exception {
+        RequestConfig config = config();
+        config.setMaxQueuedPerUser(2);
+        FairScheduler scheduler = new FairScheduler(config);
+        List<FairScheduler.Task> tasks = offer(scheduler, "a", 1, "a1", "a2");
+
+        tasks.get(0).cancel();
+        offer(scheduler, "a", 1, "a3");
+        runNext(scheduler, 2);
+
+        assertThat(order).containsExactly("a2", "a3");
+    }
+
+    @Test
+    void cancellingARunningTaskDoesNotInterruptIt() throws Exception {
+        RequestConfig config = config();
+        config.setMaxRunningPerUser(1);
+        FairScheduler scheduler = new FairScheduler(config);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        scheduler.offer("a", 1, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        });
+        offer(scheduler, "a", 1, "a2");
+
+        FairScheduler.Task running = scheduler.next();
+        Thread worker = new Thread(running.work);
+        worker.start();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        running.cancel();
+        release.countDown();
+        worker.join(5_000);
+
+        assertThat(interrupted).isFalse();
+        assertThat(running.work.isCancelled()).isTrue();
+        // Still counts against the cap until the worker reports it done
+        CompletableFuture<FairScheduler.Task> next = CompletableFuture.supplyAsync(() -> next(scheduler));
+        Thread.sleep(100);
+        assertThat(next).isNotDone();
+        scheduler.done(running, 1_000_000);
+        next.get(5, TimeUnit.SECONDS).work.run();
+        assertThat(order).containsExactly("a2");
+    }
+
+    private static RequestConfig config() {
+        RequestConfig config = new RequestConfig();
+        config.setThreads(8);
+        config.setQueueCapacity(100);
+        return config;
+    }
+
+    private List<FairScheduler.Task> offer(FairScheduler scheduler, String userId, int cost, String... labels) {
+        List<FairScheduler.Task> tasks = new ArrayList<>();
+        for (String label : labels) {
+            tasks.add(scheduler.offer(userId, cost, () -> order.add(label)));
+        }
+        return tasks;
+    }
+
+    private static List<FairScheduler.Task> runNext(FairScheduler scheduler, int count) throws InterruptedException {
+        List<FairScheduler.Task> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            FairScheduler.Task task = scheduler.next();
+            task.work.run();
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    private static FairScheduler.Task next(FairScheduler scheduler) {
+        try {
+            return scheduler.next();
+        } catch (InterruptedException e) {
+            throw new CompletionException(e);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.spotify.app.controller;
+
+import com.spotify.app.config.RequestConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestExecutorTest {
+
+    @TempDir
+    Path dir;
+
+    private RequestExecutor executor;
+
+    @AfterEach
+    void stop() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void cancellingDuringTokenRefreshLetsTheSaveFinish() throws Exception {
+        RequestConfig config = new RequestConfig();
+        config.setThreads(2);
+        executor = new RequestExecutor(config);
+
+        Path journalPath = dir.resolve("tokens.journal");
+        CountDownLatch refreshing = new CountDownLatch(1);
+        CountDownLatch refreshAnswered = new CountDownLatch(1);
+        CountDownLatch saved = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AtomicReference<IOException> saveFailure = new AtomicReference<>();
+
+        try (FileChannel journal = FileChannel.open(journalPath, CREATE, WRITE, APPEND)) {
+            // Stands in for a token refresh: wait for the token endpoint, then journal the new token
+            DeferredResult<ResponseEntity<?>> first = executor.submit("default", "session", () -> {
+                refreshing.countDown();
+                awaitUninterruptibly(refreshAnswered);
+                interrupted.set(Thread.currentThread().isInterrupted());
+                try {
+                    journal.write(ByteBuffer.wrap("{\"op\":\"put\"}\n".getBytes(StandardCharsets.UTF_8)));
+                    journal.force(false);
+                } catch (IOException e) {
+                    saveFailure.set(e);
+                } finally {
+                    saved.countDown();
+                }
+                return ResponseEntity.ok("first");
+            });
+            assertThat(refreshing.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // A newer search from the same session cancels the first one mid-refresh
+            DeferredResult<ResponseEntity<?>> second =
+                    executor.submit("default", "session", () -> ResponseEntity.ok("second"));
+            refreshAnswered.countDown();
+            assertThat(saved.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(interrupted).isFalse();
+            assertThat(saveFailure.get()).isNull();
+            assertThat(journal.isOpen()).isTrue();
+            assertThat(Files.readString(journalPath)).isEqualTo("{\"op\":\"put\"}\n");
+            assertThat(((ResponseEntity<?>) first.getResult()).getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+            awaitResult(second);
+            assertThat(((ResponseEntity<?>) second.getResult()).getBody()).isEqualTo("second");
+        }
+    }
+
+    @Test
+    void handlerErrorAnswersRightAway() throws Exception {
+        RequestConfig config = new RequestConfig();
+        config.setThreads(1);
+        executor = new RequestExecutor(config);
+        AssertionError error = new AssertionError("handler bug");
+
+        DeferredResult<ResponseEntity<?>> result = executor.submit("default", () -> {
+            throw error;
+        });
+        awaitResult(result);
+
+        assertThat(result.getResult()).isSameAs(error);
+
+        // The worker survives it
+        DeferredResult<ResponseEntity<?>> next = executor.submit("default", () -> ResponseEntity.ok("next"));
+        awaitResult(next);
+        assertThat(((ResponseEntity<?>) next.getResult()).getBody()).isEqualTo("next");
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitResult(DeferredResult<?> result) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!result.hasResult() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
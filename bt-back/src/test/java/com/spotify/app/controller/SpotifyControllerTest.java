@@ -0,0 +1,41 @@
+package com.spotify.app.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpotifyControllerTest {
+
+    @Test
+    void acceptsGzipWhenListed() {
+        assertThat(SpotifyController.acceptsGzip("gzip")).isTrue();
+        assertThat(SpotifyController.acceptsGzip("gzip, deflate, br")).isTrue();
+        assertThat(SpotifyController.acceptsGzip("br;q=1.0, GZIP;q=0.5")).isTrue();
+        assertThat(SpotifyController.acceptsGzip("gzip ; Q=0.001")).isTrue();
+    }
+
+    @Test
+    void refusesGzipWithQZero() {
+        assertThat(SpotifyController.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(SpotifyController.acceptsGzip("br, gzip;q=0.0")).isFalse();
+        assertThat(SpotifyController.acceptsGzip("*, gzip;q=0")).isFalse();
+    }
+
+    @Test
+    void wildcardAppliesOnlyWithoutAnExplicitGzip() {
+        assertThat(SpotifyController.acceptsGzip("*")).isTrue();
+        assertThat(SpotifyController.acceptsGzip("br, *;q=0.1")).isTrue();
+        assertThat(SpotifyController.acceptsGzip("*;q=0")).isFalse();
+        assertThat(SpotifyController.acceptsGzip("gzip, *;q=0")).isTrue();
+    }
+
+    @Test
+    void otherCodingsAreNotGzip() {
+        assertThat(SpotifyController.acceptsGzip(null)).isFalse();
+        assertThat(SpotifyController.acceptsGzip("")).isFalse();
+        assertThat(SpotifyController.acceptsGzip("identity")).isFalse();
+        assertThat(SpotifyController.acceptsGzip("x-gzip")).isFalse();
+        assertThat(SpotifyController.acceptsGzip("br, deflate")).isFalse();
+        assertThat(SpotifyController.acceptsGzip("gzip;q=abc")).isFalse();
+    }
+}
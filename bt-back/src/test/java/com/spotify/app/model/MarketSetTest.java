@@ -0,0 +1,98 @@
+package com.spotify.app.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MarketSetTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void jsonRoundTripKeepsKnownAndUnknownCodes() throws Exception {
+        MarketSet markets = objectMapper.readValue("[\"US\",\"GB\",\"XX\",\"AD\",\"US\"]", MarketSet.class);
+
+        String json = objectMapper.writeValueAsString(markets);
+
+        assertThat(json).isEqualTo("[\"AD\",\"GB\",\"US\",\"XX\"]");
+        assertThat(objectMapper.readValue(json, MarketSet.class)).isEqualTo(markets);
+    }
+
+    @Test
+    void deserializesAsATrackField() throws Exception {
+        Track track = objectMapper.readValue("{\"available_markets\":[\"SE\",\"NO\"]}", Track.class);
+
+        assertThat(track.getAvailableMarkets()).containsExactly("NO", "SE");
+        assertThat(track.isAvailableIn("SE")).isTrue();
+        assertThat(track.isAvailableIn("US")).isFalse();
+        assertThat(objectMapper.writeValueAsString(track)).contains("\"available_markets\":[\"NO\",\"SE\"]");
+    }
+
+    @Test
+    void isAvailableIn() {
+        MarketSet markets = MarketSet.of(List.of("US", "ZW", "XX"));
+
+        assertThat(markets.isAvailableIn("US")).isTrue();
+        assertThat(markets.isAvailableIn("ZW")).isTrue();
+        assertThat(markets.isAvailableIn("XX")).isTrue();
+        assertThat(markets.isAvailableIn("GB")).isFalse();
+        assertThat(markets.isAvailableIn("YY")).isFalse();
+        assertThat(markets.isAvailableIn(null)).isFalse();
+        assertThat(markets.contains("US")).isTrue();
+        assertThat(markets.contains(1)).isFalse();
+    }
+
+    @Test
+    void listViewIsInDictionaryOrderThenUnknownCodes() {
+        MarketSet markets = MarketSet.of(List.of("ZW", "XX", "AD", "MX"));
+
+        assertThat(markets).hasSize(4).containsExactly("AD", "MX", "ZW", "XX");
+        assertThat(markets.get(3)).isEqualTo("XX");
+    }
+
+    @Test
+    void iterationAndEqualityMatchTheListView() {
+        MarketSet markets = MarketSet.of(List.of("ZW", "XX", "AD", "MX", "YY"));
+        List<String> codes = List.of("AD", "MX", "ZW", "XX", "YY");
+
+        assertThat(markets.iterator()).toIterable().containsExactlyElementsOf(codes);
+        assertThat(markets).isEqualTo(codes);
+        assertThat(codes).isEqualTo(markets);
+        assertThat(markets.hashCode()).isEqualTo(codes.hashCode());
+        assertThat(markets).isNotEqualTo(List.of("AD", "MX", "ZW", "YY", "XX"));
+        assertThat(markets).isNotEqualTo(MarketSet.of(List.of("ZW", "AD", "MX", "XX")));
+        assertThat(markets.toString()).isEqualTo(codes.toString());
+    }
+
+    @Test
+    void iterationSkipsEmptyWords() {
+        for (List<String> codes : List.of(List.of("AD", "US"), List.of("JP"), List.of("ZW", "XX"), List.of("XX"),
+                List.of("AD", "CA", "JP", "SE", "US", "ZW", "QQ"))) {
+            MarketSet markets = MarketSet.of(codes);
+            List<String> byIndex = IntStream.range(0, markets.size()).mapToObj(markets::get).toList();
+
+            assertThat(markets.iterator()).toIterable().containsExactlyElementsOf(byIndex);
+        }
+        assertThat(MarketSet.of(List.of()).iterator().hasNext()).isFalse();
+    }
+
+    @Test
+    void dictionaryBitsRoundTrip() {
+        MarketSet markets = MarketSet.of(List.of("US", "JP", "QQ"));
+
+        MarketSet rebuilt = MarketSet.fromDictionaryBits(markets.dictionaryBits(), markets.unknownCodes());
+
+        assertThat(rebuilt).isEqualTo(markets);
+        assertThat(rebuilt.unknownCodes()).containsExactly("QQ");
+    }
+
+    @Test
+    void identicalSetsAreShared() {
+        assertThat(MarketSet.of(List.of("US", "GB"))).isSameAs(MarketSet.of(List.of("GB", "US")));
+        assertThat(MarketSet.of(List.of())).isEmpty();
+    }
+}
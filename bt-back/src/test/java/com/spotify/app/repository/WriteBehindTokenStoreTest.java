@@ -0,0 +1,223 @@
+package com.spotify.app.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotify.app.config.TokenWriteBehindConfig;
+import com.spotify.app.model.SpotifyToken;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assumptions.assumeThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WriteBehindTokenStoreTest {
+
+    @TempDir
+    Path dir;
+
+    // Configured like the application's: java.time support, unknown properties ignored
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void unflushedChangesAreReplayedAfterACrash() throws Exception {
+        JdbcTemplate crashedJdbc = mock(JdbcTemplate.class);
+        WriteBehindTokenStore crashed = store(crashedJdbc);
+        crashed.start();
+        crashed.save(token("alice", "access-1"));
+        crashed.save(token("bob", "access-2"));
+        crashed.save(token("alice", "access-3"));
+        crashed.delete("bob");
+        // No shutdown: the process dies with everything still dirty
+        verify(crashedJdbc, never()).batchUpdate(anyString(), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+
+        JdbcTemplate jdbc = mock(JdbcTemplate.class);
+        WriteBehindTokenStore restarted = store(jdbc);
+        restarted.start();
+
+        assertThat(restarted.find("alice")).map(SpotifyToken::getAccessToken).contains("access-3");
+        assertThat(restarted.find("bob")).isEmpty();
+        assertThat(flushedTokens(jdbc)).extracting(SpotifyToken::getAccessToken).containsExactly("access-3");
+        verify(jdbc).update("DELETE FROM spotify_tokens WHERE user_id = ?", "bob");
+        assertThat(Files.size(journalPath())).isZero();
+        restarted.shutdown();
+    }
+
+    @Test
+    void tornLastEntryIsIgnored() throws Exception {
+        WriteBehindTokenStore crashed = store(mock(JdbcTemplate.class));
+        crashed.start();
+        crashed.save(token("alice", "access-1"));
+        Files.writeString(journalPath(), "{\"op\":\"put\",\"userId\":\"alice\",\"tok", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+
+        JdbcTemplate jdbc = mock(JdbcTemplate.class);
+        WriteBehindTokenStore restarted = store(jdbc);
+        restarted.start();
+
+        assertThat(restarted.find("alice")).map(SpotifyToken::getAccessToken).contains("access-1");
+        assertThat(flushedTokens(jdbc)).hasSize(1);
+        restarted.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void journalIsRotatedWhileSavesKeepComing() throws Exception {
+        JdbcTemplate jdbc = mock(JdbcTemplate.class);
+        WriteBehindTokenStore store = store(jdbc);
+        store.start();
+        store.save(token("alice", "access-1"));
+        // Every batch races with another user's refresh, so something is always dirty after a flush
+        AtomicInteger refreshes = new AtomicInteger();
+        when(jdbc.batchUpdate(anyString(), any(Collection.class), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    store.save(token("user" + refreshes.incrementAndGet(), "access"));
+                    return new int[0][];
+                });
+
+        for (int i = 0; i < 5; i++) {
+            store.flush();
+        }
+
+        assertThat(journalFiles()).containsExactly(journalPath());
+        assertThat(Files.readString(journalPath())).contains("user5").doesNotContain("alice", "user4");
+        store.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void segmentsOfAFailedFlushAreReplayed() throws Exception {
+        JdbcTemplate failing = mock(JdbcTemplate.class);
+        when(failing.batchUpdate(anyString(), any(Collection.class), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("database down"));
+        WriteBehindTokenStore crashed = store(failing);
+        crashed.start();
+        crashed.save(token("alice", "access-1"));
+        assertThatThrownBy(crashed::flush).isInstanceOf(DataAccessException.class);
+        crashed.save(token("bob", "access-2"));
+        assertThatThrownBy(crashed::flush).isInstanceOf(DataAccessException.class);
+        assertThat(journalFiles()).hasSize(3);
+
+        JdbcTemplate jdbc = mock(JdbcTemplate.class);
+        WriteBehindTokenStore restarted = store(jdbc);
+        restarted.start();
+
+        assertThat(flushedTokens(jdbc)).extracting(SpotifyToken::getAccessToken)
+                .containsExactlyInAnyOrder("access-1", "access-2");
+        assertThat(journalFiles()).containsExactly(journalPath());
+        restarted.shutdown();
+    }
+
+    @Test
+    void concurrentSavesAreAllJournaled() throws Exception {
+        WriteBehindTokenStore crashed = store(mock(JdbcTemplate.class));
+        crashed.start();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        // Fewer than batch-size, so nothing is flushed before the crash
+        List<Future<SpotifyToken>> saves = IntStream.range(0, 90)
+                .mapToObj(i -> pool.submit(() -> crashed.save(token("user" + i, "access-" + i))))
+                .toList();
+        for (Future<SpotifyToken> save : saves) {
+            save.get(5, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        JdbcTemplate jdbc = mock(JdbcTemplate.class);
+        WriteBehindTokenStore restarted = store(jdbc);
+        restarted.start();
+
+        assertThat(flushedTokens(jdbc)).hasSize(90);
+        restarted.shutdown();
+    }
+
+    @Test
+    void callersGetCopies() throws Exception {
+        WriteBehindTokenStore store = store(mock(JdbcTemplate.class));
+        store.start();
+        SpotifyToken saved = store.save(token("alice", "access-1"));
+        saved.setAccessToken("changed after save");
+        store.find("alice").orElseThrow().setAccessToken("changed after find");
+
+        assertThat(store.find("alice")).map(SpotifyToken::getAccessToken).contains("access-1");
+        store.shutdown();
+    }
+
+    @Test
+    void journalIsReadableByItsOwnerOnly() throws Exception {
+        assumeThat(dir.getFileSystem().supportedFileAttributeViews()).contains("posix");
+        WriteBehindTokenStore store = store(mock(JdbcTemplate.class));
+        store.start();
+        store.save(token("alice", "access-1"));
+
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(journalPath()))).isEqualTo("rw-------");
+        store.shutdown();
+    }
+
+    private WriteBehindTokenStore store(JdbcTemplate jdbcTemplate) {
+        TokenRepository tokenRepository = mock(TokenRepository.class);
+        when(tokenRepository.findByUserId(anyString())).thenReturn(Optional.empty());
+        TokenWriteBehindConfig config = new TokenWriteBehindConfig();
+        config.setEnabled(true);
+        config.setJournal(journalPath().toString());
+        config.setFlushInterval(Duration.ofHours(1));
+        return new WriteBehindTokenStore(tokenRepository, jdbcTemplate, objectMapper, config);
+    }
+
+    private Path journalPath() {
+        return dir.resolve("token-journal.jsonl");
+    }
+
+    private List<Path> journalFiles() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<SpotifyToken> flushedTokens(JdbcTemplate jdbc) {
+        ArgumentCaptor<Collection<SpotifyToken>> batch = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbc).batchUpdate(anyString(), batch.capture(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        return batch.getValue();
+    }
+
+    private static SpotifyToken token(String userId, String accessToken) {
+        SpotifyToken token = new SpotifyToken();
+        token.setUserId(userId);
+        token.setAccessToken(accessToken);
+        token.setRefreshToken("refresh-" + userId);
+        token.setExpiresIn(3600);
+        token.setCreatedAt(LocalDateTime.now());
+        return token;
+    }
+}
@@ -0,0 +1,151 @@
+package com.spotify.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotify.app.cache.ResponseCache;
+import com.spotify.app.config.BatchConfig;
+import com.spotify.app.config.CacheConfig;
+import com.spotify.app.config.ErrorLogConfig;
+import com.spotify.app.controller.RequestExecutor;
+import com.spotify.app.controller.SpotifyController;
+import com.spotify.app.model.Artist;
+import com.spotify.app.model.BatchRequest;
+import com.spotify.app.model.BatchResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class BatchServiceTest {
+
+    private static final String ARTIST_ID = "0TnOYISbd1XYRBk9myaseg";
+    private static final String ALBUM_ID = "4aawyAB9vmqN3uQ7FjRGTy";
+
+    private final SpotifyService spotifyService = mock(SpotifyService.class);
+    private final BatchConfig config = new BatchConfig();
+
+    @BeforeEach
+    void stubToken() {
+        when(spotifyService.resolveAccessToken("default")).thenReturn("token");
+        when(spotifyService.withAccessToken(anyString(), any())).thenAnswer(invocation ->
+                invocation.<Supplier<?>>getArgument(1).get());
+    }
+
+    @Test
+    void eachItemGetsItsOwnStatusAndBody() {
+        Artist artist = new Artist();
+        artist.setId(ARTIST_ID);
+        when(spotifyService.getArtist("default", ARTIST_ID)).thenReturn(artist);
+        UpstreamException notFound = new UpstreamException(HttpStatus.NOT_FOUND, "not_found", "Album not found",
+                UpstreamRoute.ALBUM, 404, null);
+        when(spotifyService.getAlbum("default", ALBUM_ID, null)).thenThrow(notFound);
+        when(spotifyService.getCurrentUser("default")).thenThrow(new IllegalStateException("boom"));
+
+        BatchResponse response = service().execute("default", items(
+                "/api/artists/" + ARTIST_ID, "/api/albums/" + ALBUM_ID, "/api/me"));
+
+        assertThat(response.getResponses()).extracting(BatchResponse.Item::getId).containsExactly("0", "1", "2");
+        assertThat(response.getResponses()).extracting(BatchResponse.Item::getStatus).containsExactly(200, 404, 500);
+        assertThat(response.getResponses().get(0).getBody()).isSameAs(artist);
+        assertThat(response.getResponses().get(0).getPath()).isEqualTo("/api/artists/" + ARTIST_ID);
+        assertThat(response.getResponses().get(1).getBody()).isEqualTo(notFound.body());
+        assertThat(response.getResponses().get(2).getBody()).isEqualTo(Map.of("error", "internal_error", "message", "boom"));
+    }
+
+    @Test
+    void queryParametersAreDecodedWithTheEndpointDefaults() {
+        service().execute("default", items("/api/search?q=taylor%20swift&limit=5", "/api/me/top/artists",
+                "/api/artists/" + ARTIST_ID + "/top-tracks?market=SE"));
+
+        verify(spotifyService).search("default", "taylor swift", "artist,album,track", 5, 0);
+        verify(spotifyService).getUserTopArtists("default", "medium_term", 10);
+        verify(spotifyService).getArtistTopTracks("default", ARTIST_ID, "SE");
+    }
+
+    @Test
+    void pathsOutsideTheBatchableEndpointsAnswer400() {
+        BatchResponse response = service().execute("default", items(
+                "/health", "/api/unknown", "/api/search", "/api/auth/logout", null));
+
+        assertThat(response.getResponses()).extracting(BatchResponse.Item::getStatus).containsOnly(400);
+        assertThat(response.getResponses()).extracting(item -> ((Map<?, ?>) item.getBody()).get("error"))
+                .containsOnly("bad_request");
+        verify(spotifyService, never()).search(anyString(), anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    void subRequestsRunUpToTheConfiguredConcurrency() {
+        config.setConcurrency(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(spotifyService.getArtist(anyString(), anyString())).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            running.decrementAndGet();
+            return new Artist();
+        });
+
+        BatchResponse response = service().execute("default", items(IntStream.range(0, 8)
+                .mapToObj(i -> "/api/artists/" + ARTIST_ID)
+                .toArray(String[]::new)));
+
+        assertThat(response.getResponses()).hasSize(8).extracting(BatchResponse.Item::getStatus).containsOnly(200);
+        assertThat(maxRunning).hasValue(2);
+    }
+
+    @Test
+    void missingTokenFailsTheWholeBatch() {
+        when(spotifyService.resolveAccessToken("default")).thenThrow(UnauthorizedException.NO_TOKEN);
+
+        assertThatThrownBy(() -> service().execute("default", items("/api/me")))
+                .isSameAs(UnauthorizedException.NO_TOKEN);
+        verify(spotifyService, never()).getCurrentUser(anyString());
+    }
+
+    @Test
+    void batchesOutsideMaxRequestsAreRejected() {
+        config.setMaxRequests(3);
+        RequestExecutor requestExecutor = mock(RequestExecutor.class);
+        SpotifyController controller = new SpotifyController(spotifyService, requestExecutor, service(),
+                new ResponseCache(new CacheConfig()), new ObjectMapper());
+
+        for (int size : new int[]{0, 4}) {
+            BatchRequest request = new BatchRequest();
+            request.setRequests(items(IntStream.range(0, size).mapToObj(i -> "/api/me").toArray(String[]::new)));
+
+            ResponseEntity<?> response = (ResponseEntity<?>) controller.batch("default", request).getResult();
+
+            assertThat(response.getStatusCode().value()).isEqualTo(400);
+            assertThat(((Map<?, ?>) response.getBody()).get("error")).isEqualTo("invalid_batch");
+        }
+        verifyNoInteractions(requestExecutor);
+    }
+
+    private BatchService service() {
+        return new BatchService(spotifyService, config, new LogSampler(new ErrorLogConfig()));
+    }
+
+    private static List<BatchRequest.Item> items(String... paths) {
+        return IntStream.range(0, paths.length).mapToObj(i -> {
+            BatchRequest.Item item = new BatchRequest.Item();
+            item.setId(String.valueOf(i));
+            item.setPath(paths[i]);
+            return item;
+        }).toList();
+    }
+}
@@ -0,0 +1,96 @@
+package com.spotify.app.service;
+
+import com.spotify.app.config.CacheConfig;
+import com.spotify.app.config.WarmupConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CacheWarmerTest {
+
+    private static final List<String> TIME_RANGES = List.of("short_term", "medium_term", "long_term");
+
+    private final SpotifyService spotifyService = mock(SpotifyService.class);
+    private final WarmupConfig warmupConfig = new WarmupConfig();
+    private CacheWarmer warmer;
+
+    @AfterEach
+    void stop() {
+        if (warmer != null) {
+            warmer.shutdown();
+        }
+    }
+
+    @Test
+    void warmsTheProfileEveryTimeRangeAndTheTopArtists() {
+        for (String timeRange : TIME_RANGES) {
+            when(spotifyService.getUserTopArtists("default", timeRange, 10)).thenReturn(topArtists(7));
+        }
+        warmer = new CacheWarmer(spotifyService, new CacheConfig(), warmupConfig);
+
+        warmer.onTokenIssued(new TokenIssuedEvent("default", false));
+
+        verify(spotifyService, timeout(5_000)).getCurrentUser("default");
+        for (String timeRange : TIME_RANGES) {
+            verify(spotifyService, timeout(5_000)).getUserTopArtists("default", timeRange, 10);
+        }
+        // The first 5 of each list; every range lists the same artists here
+        for (int i = 0; i < 5; i++) {
+            verify(spotifyService, timeout(5_000).times(3)).getArtist("default", "artist" + i);
+        }
+        verify(spotifyService, never()).getArtist("default", "artist5");
+    }
+
+    @Test
+    void eventDuringAWarmupIsIgnored() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(spotifyService.getCurrentUser("default")).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Map.of();
+        });
+        warmer = new CacheWarmer(spotifyService, new CacheConfig(), warmupConfig);
+
+        warmer.onTokenIssued(new TokenIssuedEvent("default", false));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        warmer.onTokenIssued(new TokenIssuedEvent("default", true));
+        release.countDown();
+
+        verify(spotifyService, timeout(5_000)).getCurrentUser("default");
+        for (String timeRange : TIME_RANGES) {
+            verify(spotifyService, timeout(5_000)).getUserTopArtists("default", timeRange, 10);
+        }
+        Thread.sleep(100);
+        verify(spotifyService).getCurrentUser("default");
+    }
+
+    @Test
+    void nothingIsWarmedWhenDisabled() {
+        warmupConfig.setEnabled(false);
+        warmer = new CacheWarmer(spotifyService, new CacheConfig(), warmupConfig);
+
+        warmer.onTokenIssued(new TokenIssuedEvent("default", false));
+
+        verifyNoInteractions(spotifyService);
+    }
+
+    private static Map<String, Object> topArtists(int count) {
+        return Map.of("items", IntStream.range(0, count)
+                .mapToObj(i -> Map.of("id", "artist" + i))
+                .toList());
+    }
+}
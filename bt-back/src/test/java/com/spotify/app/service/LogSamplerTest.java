@@ -0,0 +1,68 @@
+package com.spotify.app.service;
+
+import com.spotify.app.config.ErrorLogConfig;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogSamplerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final LogSampler sampler = new LogSampler(config(), clock::get);
+
+    @Test
+    void burstIsLoggedThenOneInSampleEvery() {
+        List<Long> counts = sample("upstream_error|ARTIST", 13);
+
+        // burst 3, then every 5th with the occurrences it stands for
+        assertThat(counts).containsExactly(1L, 1L, 1L, 0L, 0L, 0L, 0L, 5L, 0L, 0L, 0L, 0L, 5L);
+    }
+
+    @Test
+    void keysAreSampledSeparately() {
+        sample("upstream_error|ARTIST", 3);
+
+        assertThat(sampler.sample("upstream_error|ALBUM")).isEqualTo(1);
+        assertThat(sampler.sample("upstream_error|ARTIST")).isZero();
+    }
+
+    @Test
+    void newWindowStartsAnotherBurstAndKeepsTheUnloggedCount() {
+        sample("upstream_timeout|SEARCH", 5);
+
+        clock.set(Duration.ofMinutes(1).toNanos());
+
+        // The 2 occurrences skipped in the previous window are reported with the first of this one
+        assertThat(sample("upstream_timeout|SEARCH", 4)).containsExactly(3L, 1L, 1L, 0L);
+    }
+
+    @Test
+    void windowDoesNotResetEarly() {
+        sample("upstream_timeout|SEARCH", 3);
+
+        clock.set(Duration.ofSeconds(59).toNanos());
+
+        assertThat(sampler.sample("upstream_timeout|SEARCH")).isZero();
+    }
+
+    private List<Long> sample(String key, int times) {
+        List<Long> counts = new ArrayList<>();
+        for (int i = 0; i < times; i++) {
+            counts.add(sampler.sample(key));
+        }
+        return counts;
+    }
+
+    private static ErrorLogConfig config() {
+        ErrorLogConfig config = new ErrorLogConfig();
+        config.setBurst(3);
+        config.setSampleEvery(5);
+        config.setWindow(Duration.ofMinutes(1));
+        return config;
+    }
+}
@@ -0,0 +1,124 @@
+package com.spotify.app.service;
+
+import com.spotify.app.config.PrefetchConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrefetcherTest {
+
+    private static final Runnable NOTHING = () -> { };
+
+    private final AtomicLong clock = new AtomicLong();
+    private final PrefetchConfig config = new PrefetchConfig();
+    private Prefetcher prefetcher;
+
+    @AfterEach
+    void stop() {
+        if (prefetcher != null) {
+            prefetcher.shutdown();
+        }
+    }
+
+    @Test
+    void burstIsSpentThenRefillsAtTheRate() {
+        prefetcher = new Prefetcher(config, clock::get);
+
+        assertThat(submitted(12)).isEqualTo(10);
+
+        advance(Duration.ofSeconds(1));
+        assertThat(submitted(10)).isEqualTo(5);
+    }
+
+    @Test
+    void refillSlowsAsUpstreamCallsApproachTheWindowLimit() {
+        prefetcher = new Prefetcher(config, clock::get);
+        submitted(10);
+        // Half of the 600 * 0.7 calls allowed per 30s
+        recordUpstreamCalls(210);
+
+        advance(Duration.ofSeconds(2));
+
+        assertThat(submitted(10)).isEqualTo(5);
+    }
+
+    @Test
+    void nothingIsPrefetchedAtTheWindowLimitUntilTheCallsAgeOut() {
+        prefetcher = new Prefetcher(config, clock::get);
+        recordUpstreamCalls(420);
+
+        assertThat(prefetcher.submit(NOTHING)).isFalse();
+
+        advance(Duration.ofSeconds(31));
+        assertThat(prefetcher.submit(NOTHING)).isTrue();
+    }
+
+    @Test
+    void throttlingPausesPrefetchForThirtySeconds() {
+        prefetcher = new Prefetcher(config, clock::get);
+        prefetcher.recordThrottled(Duration.ZERO);
+
+        advance(Duration.ofSeconds(29));
+        assertThat(prefetcher.submit(NOTHING)).isFalse();
+
+        advance(Duration.ofSeconds(1));
+        assertThat(prefetcher.submit(NOTHING)).isTrue();
+    }
+
+    @Test
+    void longerRetryAfterPausesLonger() {
+        prefetcher = new Prefetcher(config, clock::get);
+        prefetcher.recordThrottled(Duration.ofSeconds(90));
+
+        advance(Duration.ofSeconds(89));
+        assertThat(prefetcher.submit(NOTHING)).isFalse();
+
+        advance(Duration.ofSeconds(1));
+        assertThat(prefetcher.submit(NOTHING)).isTrue();
+    }
+
+    @Test
+    void tasksRunMarkedAsPrefetching() throws Exception {
+        prefetcher = new Prefetcher(config, clock::get);
+        CompletableFuture<Boolean> prefetching = new CompletableFuture<>();
+
+        assertThat(prefetcher.submit(() -> prefetching.complete(prefetcher.isPrefetching()))).isTrue();
+
+        assertThat(prefetching.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(prefetcher.isPrefetching()).isFalse();
+    }
+
+    @Test
+    void disabledPrefetcherDropsEverything() {
+        config.setEnabled(false);
+        prefetcher = new Prefetcher(config, clock::get);
+
+        assertThat(prefetcher.submit(NOTHING)).isFalse();
+    }
+
+    private int submitted(int attempts) {
+        int accepted = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (prefetcher.submit(NOTHING)) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    private void recordUpstreamCalls(int calls) {
+        for (int i = 0; i < calls; i++) {
+            prefetcher.recordUpstreamCall();
+        }
+    }
+
+    private void advance(Duration duration) {
+        clock.addAndGet(duration.toNanos());
+    }
+}
@@ -0,0 +1,105 @@
+package com.spotify.app.service;
+
+import com.spotify.app.config.HedgeConfig;
+import com.spotify.app.config.UpstreamLimitConfig;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestHedgerTest {
+
+    private static final UpstreamRoute ROUTE = UpstreamRoute.ARTIST;
+    private static final Duration SLOW = Duration.ofMillis(500);
+
+    private final UpstreamLimiter limiter = new UpstreamLimiter(limitConfig());
+    private final RequestHedger hedger = new RequestHedger(hedgeConfig(), limiter);
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @Test
+    void slowRequestIsAnsweredByTheHedge() {
+        warmUp();
+
+        String result = hedger.hedge(ROUTE, attempts(Mono.delay(SLOW).thenReturn("first"), Mono.just("hedge"))).block();
+
+        assertThat(result).isEqualTo("hedge");
+        assertThat(hedger.hedgesSent()).isEqualTo(1);
+        // The hedge's permit is back
+        assertThat(limiter.tryAcquire(ROUTE, true)).isNotNull();
+    }
+
+    @Test
+    void failingHedgeDoesNotBeatTheFirstAttempt() {
+        warmUp();
+
+        Mono<String> request = attempts(Mono.delay(Duration.ofMillis(100)).thenReturn("first"),
+                Mono.error(new IllegalStateException("hedge failed")));
+
+        assertThat(hedger.hedge(ROUTE, request).block()).isEqualTo("first");
+        assertThat(hedger.hedgesSent()).isEqualTo(1);
+    }
+
+    @Test
+    void firstAttemptFailingEarlyIsReturnedWithoutAHedge() {
+        warmUp();
+
+        Mono<String> request = attempts(Mono.error(new IllegalStateException("first failed")), Mono.just("hedge"));
+
+        assertThatThrownBy(() -> hedger.hedge(ROUTE, request).block()).hasMessage("first failed");
+        assertThat(hedger.hedgesSent()).isZero();
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    @Test
+    void bothAttemptsFailingAnswersWithTheFirstError() {
+        warmUp();
+
+        Mono<String> request = attempts(Mono.delay(Duration.ofMillis(100)).then(Mono.error(new IllegalStateException("first failed"))),
+                Mono.error(new IllegalStateException("hedge failed")));
+
+        assertThatThrownBy(() -> hedger.hedge(ROUTE, request).block()).hasMessage("first failed");
+        assertThat(hedger.hedgesSent()).isEqualTo(1);
+    }
+
+    @Test
+    void noHedgeWithoutASparePermit() {
+        warmUp();
+        // Takes the whole prefetch share (limit 2 * 0.5)
+        UpstreamLimiter.Permit held = limiter.acquire(ROUTE, false);
+
+        String result = hedger.hedge(ROUTE, attempts(Mono.delay(Duration.ofMillis(100)).thenReturn("first"), Mono.just("hedge"))).block();
+
+        assertThat(result).isEqualTo("first");
+        assertThat(hedger.hedgesSent()).isZero();
+        held.release(false);
+    }
+
+    // One quick sample so later requests are hedged after min-delay
+    private void warmUp() {
+        hedger.hedge(ROUTE, Mono.just("warm-up")).block();
+    }
+
+    private Mono<String> attempts(Mono<String> first, Mono<String> hedge) {
+        return Mono.defer(() -> attempts.incrementAndGet() == 1 ? first : hedge);
+    }
+
+    private static HedgeConfig hedgeConfig() {
+        HedgeConfig config = new HedgeConfig();
+        config.setEnabled(true);
+        config.setMinSamples(1);
+        config.setMinDelay(Duration.ofMillis(20));
+        config.setBudgetRatio(1);
+        return config;
+    }
+
+    private static UpstreamLimitConfig limitConfig() {
+        UpstreamLimitConfig config = new UpstreamLimitConfig();
+        config.setInitialLimit(2);
+        config.setMinLimit(1);
+        return config;
+    }
+}
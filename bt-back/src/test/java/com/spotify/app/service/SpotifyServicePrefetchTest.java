@@ -0,0 +1,122 @@
+package com.spotify.app.service;
+
+import com.spotify.app.cache.NegativeCache;
+import com.spotify.app.cache.ResponseCache;
+import com.spotify.app.catalog.CatalogStore;
+import com.spotify.app.config.CacheConfig;
+import com.spotify.app.config.CatalogStoreConfig;
+import com.spotify.app.config.HedgeConfig;
+import com.spotify.app.config.NegativeCacheConfig;
+import com.spotify.app.config.PrefetchConfig;
+import com.spotify.app.config.SpotifyConfig;
+import com.spotify.app.config.UpstreamLimitConfig;
+import com.spotify.app.model.SpotifyToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SpotifyServicePrefetchTest {
+
+    private static final String USER = "default";
+    private static final String ARTIST = "0TnOYISbd1XYRBk9myaseg";
+    private static final String[] ALBUMS = {
+            "4aawyAB9vmqN3uQ7FjRGTy", "1ATL5GLyefJaxhQzSPVrLX", "6pwuKxMUkNg673KETsXPUV", "0sNOF9WDwhWunNAHPD3Baj"};
+
+    private final Prefetcher prefetcher = mock(Prefetcher.class);
+    private SpotifyService spotifyService;
+
+    @BeforeEach
+    void setUp() {
+        TokenService tokenService = mock(TokenService.class);
+        SpotifyToken token = new SpotifyToken();
+        token.setAccessToken("access");
+        when(tokenService.getValidToken(USER)).thenReturn(Optional.of(token));
+
+        SpotifyConfig spotifyConfig = new SpotifyConfig();
+        spotifyConfig.setApiUrl("http://localhost");
+        UpstreamLimiter upstreamLimiter = new UpstreamLimiter(new UpstreamLimitConfig());
+        spotifyService = new SpotifyService(spotifyConfig, tokenService, spotify(), new CacheConfig(),
+                new ResponseCache(new CacheConfig()), new PrefetchConfig(), prefetcher,
+                new RequestHedger(new HedgeConfig(), upstreamLimiter), new CatalogStore(new CatalogStoreConfig()),
+                new NegativeCache(new NegativeCacheConfig()), upstreamLimiter);
+    }
+
+    @Test
+    void artistPageIsPrefetchedWhenNotCached() {
+        spotifyService.getArtist(USER, ARTIST);
+
+        verify(prefetcher, times(1)).submit(any());
+    }
+
+    @Test
+    void cachedArtistPageIsNotPrefetchedAgain() {
+        spotifyService.getArtistAlbums(USER, ARTIST, "album,single", "US", 10, 0);
+        clearInvocations(prefetcher);
+
+        spotifyService.getArtist(USER, ARTIST);
+
+        verify(prefetcher, never()).submit(any());
+    }
+
+    @Test
+    void onlyUncachedAlbumsFromTheTopOfThePageArePrefetched() {
+        spotifyService.getAlbum(USER, ALBUMS[0]);
+
+        spotifyService.getArtistAlbums(USER, ARTIST, "album,single", "US", 10, 0);
+
+        // The first three albums, less the one already cached
+        verify(prefetcher, times(2)).submit(any());
+    }
+
+    @Test
+    void nextSearchPageIsPrefetchedOnlyWhenNotCached() {
+        spotifyService.search(USER, "radiohead", "artist", 10, 0);
+        verify(prefetcher, times(1)).submit(any());
+
+        spotifyService.search(USER, "radiohead", "artist", 10, 10);
+        clearInvocations(prefetcher);
+
+        spotifyService.search(USER, "radiohead", "artist", 10, 0);
+
+        verify(prefetcher, never()).submit(any());
+    }
+
+    private static WebClient.Builder spotify() {
+        return WebClient.builder().exchangeFunction(request -> {
+            String path = request.url().getPath();
+            String body;
+            if (path.endsWith("/albums")) {
+                StringBuilder items = new StringBuilder();
+                for (String album : ALBUMS) {
+                    items.append(items.isEmpty() ? "" : ",").append("{\"id\":\"").append(album).append("\"}");
+                }
+                body = "{\"items\":[" + items + "]}";
+            } else if (path.startsWith("/albums/")) {
+                body = "{\"id\":\"" + path.substring("/albums/".length()) + "\",\"name\":\"Album\"}";
+            } else if (path.startsWith("/artists/")) {
+                body = "{\"id\":\"" + ARTIST + "\",\"name\":\"Artist\"}";
+            } else {
+                body = "{\"artists\":{\"items\":[],\"next\":\"https://api.spotify.com/v1/search?offset=10\"}}";
+            }
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(body)
+                    .build());
+        });
+    }
+}
@@ -0,0 +1,95 @@
+package com.spotify.app.service;
+
+import com.spotify.app.cache.ResponseCache;
+import com.spotify.app.config.CacheConfig;
+import com.spotify.app.config.SpotifyConfig;
+import com.spotify.app.model.SpotifyToken;
+import com.spotify.app.repository.TokenStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenServiceTest {
+
+    private static final Duration TTL = Duration.ofMinutes(1);
+    private static final String PROFILE = "CURRENT_USER|default";
+    private static final String TOP_ARTISTS = "TOP_ARTISTS|default|medium_term|10";
+    private static final String OTHER_USER = "TOP_ARTISTS|other|medium_term|10";
+    private static final String ARTIST = "ARTIST|0TnOYISbd1XYRBk9myaseg";
+
+    private final TokenStore tokenStore = mock(TokenStore.class);
+    private final ResponseCache responseCache = new ResponseCache(new CacheConfig());
+    private final List<Object> events = new ArrayList<>();
+
+    @Test
+    void codeExchangeDropsThePreviousAccountsResponsesBeforeWarmup() {
+        when(tokenStore.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        cacheResponses();
+        TokenService tokenService = new TokenService(tokenStore, spotifyConfig(), tokenEndpoint(), event -> {
+            // Warmup listeners run on this event and must not find the old account's responses
+            assertThat(responseCache.contains(PROFILE)).isFalse();
+            events.add(event);
+        }, responseCache);
+
+        SpotifyToken token = tokenService.exchangeCodeForToken("code", "state");
+
+        assertThat(token.getAccessToken()).isEqualTo("new-access");
+        assertThat(events).containsExactly(new TokenIssuedEvent("default", false));
+        assertThat(responseCache.contains(TOP_ARTISTS)).isFalse();
+        assertThat(responseCache.contains(OTHER_USER)).isTrue();
+        assertThat(responseCache.contains(ARTIST)).isTrue();
+    }
+
+    @Test
+    void revokingDropsTheUsersResponses() {
+        when(tokenStore.find("default")).thenReturn(Optional.of(new SpotifyToken()));
+        cacheResponses();
+        TokenService tokenService = new TokenService(tokenStore, spotifyConfig(), WebClient.builder(),
+                events::add, responseCache);
+
+        tokenService.revokeToken("default");
+
+        verify(tokenStore).delete("default");
+        assertThat(responseCache.contains(PROFILE)).isFalse();
+        assertThat(responseCache.contains(TOP_ARTISTS)).isFalse();
+        assertThat(responseCache.contains(OTHER_USER)).isTrue();
+        assertThat(responseCache.contains(ARTIST)).isTrue();
+    }
+
+    private void cacheResponses() {
+        for (String key : List.of(PROFILE, TOP_ARTISTS, OTHER_USER, ARTIST)) {
+            responseCache.get(key, TTL, () -> "cached");
+        }
+    }
+
+    private static WebClient.Builder tokenEndpoint() {
+        return WebClient.builder().exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"access_token\":\"new-access\",\"refresh_token\":\"new-refresh\",\"token_type\":\"Bearer\","
+                        + "\"expires_in\":3600,\"scope\":\"user-read-private\"}")
+                .build()));
+    }
+
+    private static SpotifyConfig spotifyConfig() {
+        SpotifyConfig config = new SpotifyConfig();
+        config.setClientId("client");
+        config.setClientSecret("secret");
+        config.setTokenUrl("http://localhost/api/token");
+        return config;
+    }
+}
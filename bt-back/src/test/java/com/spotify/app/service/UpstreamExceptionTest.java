@@ -0,0 +1,118 @@
+package com.spotify.app.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpstreamExceptionTest {
+
+    private static final UpstreamRoute ROUTE = UpstreamRoute.ARTIST;
+    private static final String SPOTIFY_ERROR = "{\"error\":{\"status\":%d}}";
+
+    @Test
+    void unauthorizedKeeps401() {
+        UpstreamException e = UpstreamException.from(ROUTE, "Failed to fetch artist", answer(401, null));
+
+        assertThat(e).isInstanceOf(UnauthorizedException.class);
+        assertThat(e.getStatus().value()).isEqualTo(401);
+        assertThat(e.body()).containsEntry("error", "unauthorized")
+                .containsEntry("message", "Failed to fetch artist")
+                .containsEntry("spotify_status", 401)
+                .containsEntry("spotify_error", SPOTIFY_ERROR.formatted(401));
+    }
+
+    @Test
+    void notFoundKeeps404() {
+        UpstreamException e = UpstreamException.from(ROUTE, "Failed to fetch artist", answer(404, null));
+
+        assertThat(e.getStatus().value()).isEqualTo(404);
+        assertThat(e.getError()).isEqualTo("not_found");
+        assertThat(e.getRoute()).isEqualTo(ROUTE);
+    }
+
+    @Test
+    void rateLimitedKeepsRetryAfter() {
+        UpstreamException limited = UpstreamException.from(ROUTE, "Failed", answer(429, "7"));
+        UpstreamException withoutHeader = UpstreamException.from(ROUTE, "Failed", answer(429, null));
+        UpstreamException unreadable = UpstreamException.from(ROUTE, "Failed", answer(429, "soon"));
+
+        assertThat(limited).isInstanceOfSatisfying(RateLimitedException.class, e -> {
+            assertThat(e.getStatus().value()).isEqualTo(429);
+            assertThat(e.getRetryAfter()).isEqualTo(Duration.ofSeconds(7));
+        });
+        assertThat(((RateLimitedException) withoutHeader).getRetryAfter()).isZero();
+        assertThat(((RateLimitedException) unreadable).getRetryAfter()).isZero();
+    }
+
+    @Test
+    void otherClientErrorsKeepTheirStatus() {
+        UpstreamException e = UpstreamException.from(ROUTE, "Failed", answer(400, null));
+
+        assertThat(e.getStatus().value()).isEqualTo(400);
+        assertThat(e.getError()).isEqualTo("upstream_rejected");
+        assertThat(e.body()).containsEntry("spotify_status", 400);
+    }
+
+    @Test
+    void serverErrorsBecome502() {
+        for (int code : new int[]{500, 502, 503}) {
+            UpstreamException e = UpstreamException.from(ROUTE, "Failed", answer(code, null));
+
+            assertThat(e.getStatus().value()).isEqualTo(502);
+            assertThat(e.getError()).isEqualTo("upstream_error");
+            assertThat(e.body()).containsEntry("spotify_status", code);
+        }
+    }
+
+    @Test
+    void timeoutsBecome504() {
+        UpstreamException reactorTimeout = UpstreamException.unanswered(ROUTE, "Failed", new TimeoutException());
+        UpstreamException socketTimeout = UpstreamException.unanswered(ROUTE, "Failed",
+                request(new SocketTimeoutException("Read timed out")));
+
+        assertThat(reactorTimeout.getStatus().value()).isEqualTo(504);
+        assertThat(reactorTimeout.getError()).isEqualTo("upstream_timeout");
+        assertThat(socketTimeout.getStatus().value()).isEqualTo(504);
+        // No Spotify answer to pass on
+        assertThat(reactorTimeout.body()).containsOnlyKeys("error", "message");
+    }
+
+    @Test
+    void refusedConnectionBecomes502() {
+        UpstreamException e = UpstreamException.unanswered(ROUTE, "Failed", request(new ConnectException("Connection refused")));
+
+        assertThat(e.getStatus().value()).isEqualTo(502);
+        assertThat(e.getError()).isEqualTo("upstream_unavailable");
+    }
+
+    @Test
+    void errorsCarryNoStackTrace() {
+        assertThat(UpstreamException.from(ROUTE, "Failed", answer(500, null)).getStackTrace()).isEmpty();
+    }
+
+    private static WebClientResponseException answer(int status, String retryAfter) {
+        HttpHeaders headers = new HttpHeaders();
+        if (retryAfter != null) {
+            headers.set(HttpHeaders.RETRY_AFTER, retryAfter);
+        }
+        return WebClientResponseException.create(HttpStatusCode.valueOf(status), "", headers,
+                SPOTIFY_ERROR.formatted(status).getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8, null);
+    }
+
+    private static WebClientRequestException request(Throwable cause) {
+        return new WebClientRequestException(cause, HttpMethod.GET, URI.create("https://api.spotify.com/v1/artists/x"),
+                new HttpHeaders());
+    }
+}
@@ -0,0 +1,129 @@
+package com.spotify.app.service;
+
+import com.spotify.app.config.UpstreamLimitConfig;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UpstreamLimiterTest {
+
+    private static final UpstreamRoute ROUTE = UpstreamRoute.ARTIST;
+    private static final long RTT = Duration.ofMillis(100).toNanos();
+
+    private final AtomicLong clock = new AtomicLong();
+    private final UpstreamLimiter limiter = new UpstreamLimiter(config(), clock::get);
+
+    @Test
+    void callsOverTheLimitAreRejectedAndPrefetchesGetTheirShare() {
+        List<UpstreamLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            permits.add(limiter.acquire(ROUTE, true));
+        }
+        assertThatThrownBy(() -> limiter.acquire(ROUTE, true))
+                .isInstanceOfSatisfying(UpstreamException.class, e -> assertThat(e.getStatus().value()).isEqualTo(503));
+        assertThat(limiter.tryAcquire(ROUTE, true)).isNull();
+
+        for (int i = 10; i < 20; i++) {
+            permits.add(limiter.acquire(ROUTE, false));
+        }
+        assertThat(limiter.tryAcquire(ROUTE, false)).isNull();
+        // Other routes have their own limit
+        assertThat(limiter.tryAcquire(UpstreamRoute.ALBUM, false)).isNotNull();
+
+        permits.get(0).abandon();
+        assertThat(limiter.tryAcquire(ROUTE, false)).isNotNull();
+        assertThat(limiter.getLimit(ROUTE)).isEqualTo(20);
+    }
+
+    @Test
+    void limitGrowsWhileCallsRunAtTheMinimumRtt() {
+        measureMinimumRtt();
+
+        busyCall(RTT).release(false);
+
+        assertThat(limiter.getLimit(ROUTE)).isGreaterThan(20);
+    }
+
+    @Test
+    void limitShrinksWhenCallsQueueUpstream() {
+        measureMinimumRtt();
+
+        busyCall(10 * RTT).release(false);
+
+        assertThat(limiter.getLimit(ROUTE)).isLessThan(20);
+    }
+
+    @Test
+    void limitShrinksOnDroppedCallsDownToTheMinimum() {
+        measureMinimumRtt();
+
+        for (int i = 0; i < 100; i++) {
+            UpstreamLimiter.Permit permit = limiter.acquire(ROUTE, false);
+            clock.addAndGet(RTT);
+            permit.release(true);
+        }
+
+        assertThat(limiter.getLimit(ROUTE)).isEqualTo(4);
+    }
+
+    @Test
+    void idleAndAbandonedCallsLeaveTheLimitAlone() {
+        measureMinimumRtt();
+
+        // A single slow call while the limit is mostly unused
+        UpstreamLimiter.Permit idle = limiter.acquire(ROUTE, false);
+        clock.addAndGet(10 * RTT);
+        idle.release(false);
+        UpstreamLimiter.Permit abandoned = limiter.acquire(ROUTE, false);
+        clock.addAndGet(10 * RTT);
+        abandoned.abandon();
+        abandoned.release(true);
+
+        assertThat(limiter.getLimit(ROUTE)).isEqualTo(20);
+    }
+
+    @Test
+    void disabledLimiterAdmitsEverything() {
+        UpstreamLimitConfig config = config();
+        config.setEnabled(false);
+        UpstreamLimiter disabled = new UpstreamLimiter(config, clock::get);
+
+        for (int i = 0; i < 100; i++) {
+            disabled.acquire(ROUTE, true);
+        }
+        assertThat(disabled.tryAcquire(ROUTE, true)).isNotNull();
+    }
+
+    // The first sampled call sets the route's minimum RTT
+    private void measureMinimumRtt() {
+        UpstreamLimiter.Permit first = limiter.acquire(ROUTE, false);
+        clock.addAndGet(RTT);
+        first.release(false);
+    }
+
+    // One call taking rtt that started with half the limit in flight; the others end unsampled
+    private UpstreamLimiter.Permit busyCall(long rtt) {
+        List<UpstreamLimiter.Permit> others = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            others.add(limiter.acquire(ROUTE, false));
+        }
+        UpstreamLimiter.Permit call = limiter.acquire(ROUTE, false);
+        clock.addAndGet(rtt);
+        others.forEach(UpstreamLimiter.Permit::abandon);
+        return call;
+    }
+
+    private static UpstreamLimitConfig config() {
+        UpstreamLimitConfig config = new UpstreamLimitConfig();
+        config.setSmoothing(1);
+        // No minimum RTT reset during a test
+        config.setProbeMultiplier(1_000);
+        return config;
+    }
+}
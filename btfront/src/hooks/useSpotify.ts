@@ -9,7 +9,8 @@ const useSpotify = () => {
 
   const get = async <T>(
     url: string,
-    params?: Record<string, unknown>
+    params?: Record<string, unknown>,
+    options?: { signal?: AbortSignal; headers?: Record<string, string> }
   ): Promise<T> => {
     setLoading(true);
     setError(null);
@@ -19,10 +20,16 @@ const useSpotify = () => {
         headers: {
           Authorization: `Bearer ${accessToken}`,
           "Content-Type": "application/json",
+          ...options?.headers,
         },
+        signal: options?.signal,
       });
       return response.data;
     } catch (err) {
+      // Aborted by the caller, e.g. superseded by a newer search; not an error to show
+      if (axios.isCancel(err)) {
+        throw err;
+      }
       const errorMessage = axios.isAxiosError(err)
         ? `Error ${err.response?.status}: ${
             err.response?.data?.message || err.message
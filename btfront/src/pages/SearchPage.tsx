@@ -1,4 +1,5 @@
-import { useState, useEffect } from "react";
+import { useState, useEffect, useRef } from "react";
+import axios from "axios";
 import { useSearchParams } from "react-router-dom";
 import { useSpotifyService } from "../services/spotifyService";
 import { Grid, Typography, Box, Alert, CircularProgress } from "@mui/material";
@@ -23,6 +24,7 @@ const SearchPage = () => {
     search: "",
     topArtists: "",
   });
+  const searchAbort = useRef<AbortController | null>(null);
 
   useEffect(() => {
     const q = searchParams.get("q");
@@ -30,24 +32,35 @@ const SearchPage = () => {
       setQuery(q);
       performSearch(q);
     } else {
+      searchAbort.current?.abort();
       setQuery("");
       setSearchResults({});
     }
     fetchTopArtists();
   }, [searchParams]);
 
+  // Abandon the search in flight when leaving the page
+  useEffect(() => () => searchAbort.current?.abort(), []);
+
   const performSearch = async (q: string) => {
+    // A newer query replaces the previous one, so its request is cancelled
+    searchAbort.current?.abort();
     if (!q.trim()) {
       setSearchResults({});
       return;
     }
+    const controller = new AbortController();
+    searchAbort.current = controller;
 
     try {
       setLoading((prev) => ({ ...prev, search: true }));
       setError((prev) => ({ ...prev, search: "" }));
-      const data = await searchArtistsAndAlbums(q);
+      const data = await searchArtistsAndAlbums(q, 10, controller.signal);
       setSearchResults(data);
     } catch (err) {
+      if (axios.isCancel(err)) {
+        return;
+      }
       console.error("Search error:", err);
       setError((prev) => ({
         ...prev,
@@ -55,7 +68,9 @@ const SearchPage = () => {
       }));
       setSearchResults({ artists: [], albums: [] });
     } finally {
-      setLoading((prev) => ({ ...prev, search: false }));
+      if (searchAbort.current === controller) {
+        setLoading((prev) => ({ ...prev, search: false }));
+      }
     }
   };
 
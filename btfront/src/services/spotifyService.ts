@@ -1,5 +1,26 @@
 import useSpotify from "../hooks/useSpotify";
 
+// crypto.randomUUID only exists in secure contexts; the app is also served over plain HTTP
+const randomSessionId = () => {
+  if (typeof crypto !== "undefined") {
+    if (typeof crypto.randomUUID === "function") {
+      return crypto.randomUUID();
+    }
+    if (typeof crypto.getRandomValues === "function") {
+      const bytes = crypto.getRandomValues(new Uint8Array(16));
+      return Array.from(bytes, (b) => b.toString(16).padStart(2, "0")).join("");
+    }
+  }
+  return Math.random().toString(36).slice(2) + Date.now().toString(36);
+};
+
+// Identifies this tab's searches so the backend can cancel one superseded by a newer query
+const SEARCH_SESSION = randomSessionId();
+const searchOptions = (signal?: AbortSignal) => ({
+  signal,
+  headers: { "X-Search-Session": SEARCH_SESSION },
+});
+
 export const useSpotifyService = () => {
   const { get, loading, error } = useSpotify();
 
@@ -42,21 +63,34 @@ export const useSpotifyService = () => {
     query: string,
     type = "artist,album,track",
     limit = 10,
-    offset = 0
+    offset = 0,
+    signal?: AbortSignal
   ) => {
-    return get("/api/search", { q: query, type, limit, offset });
+    return get(
+      "/api/search",
+      { q: query, type, limit, offset },
+      searchOptions(signal)
+    );
   };
 
   const getRelatedArtists = async (id: string) => {
     return get(`/api/artists/${id}/related-artists`);
   };
 
-  const searchArtistsAndAlbums = async (query: string, limit = 10) => {
-    const data = await get("/api/search", {
-      q: query,
-      type: "artist,album",
-      limit,
-    });
+  const searchArtistsAndAlbums = async (
+    query: string,
+    limit = 10,
+    signal?: AbortSignal
+  ) => {
+    const data = await get(
+      "/api/search",
+      {
+        q: query,
+        type: "artist,album",
+        limit,
+      },
+      searchOptions(signal)
+    );
 
     return {
       artists: data.artists?.items || [],